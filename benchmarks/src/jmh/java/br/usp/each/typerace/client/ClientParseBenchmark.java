@@ -0,0 +1,44 @@
+package br.usp.each.typerace.client;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import br.usp.each.typerace.server.MessageBatch;
+
+/**
+ * Mede a interpretação, pelo cliente, do quadro enviado a cada resposta, nos protocolos de texto e binário.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ClientParseBenchmark {
+
+    private Client client;
+
+    private String textFrame;
+
+    private ByteBuffer binaryFrame;
+
+    @Setup
+    public void setup() throws Exception {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        client = new Client(new URI("ws://localhost:8080/bench/jogador"));
+        MessageBatch batch = new MessageBatch().answerResult(true, 7, 2).word(10, "Computação");
+        textFrame = batch.text();
+        binaryFrame = batch.binary();
+    }
+
+    @Benchmark
+    public void textAnswerFrame() {
+        client.onMessage(textFrame);
+    }
+
+    @Benchmark
+    public void binaryAnswerFrame() {
+        client.onMessage(binaryFrame.duplicate());
+    }
+}
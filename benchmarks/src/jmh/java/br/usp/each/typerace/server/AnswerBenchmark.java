@@ -0,0 +1,57 @@
+package br.usp.each.typerace.server;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede o caminho quente de {@link Room#onMessage(PlayerSession, String)} durante a partida: verificação da resposta
+ * e montagem do quadro de retorno. Roda direto na thread do benchmark, sem passar pela pista da sala.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AnswerBenchmark {
+
+    @Param({"false", "true"})
+    public boolean binary;
+
+    private GameScheduler scheduler;
+
+    private Room room;
+
+    private PlayerSession player;
+
+    @Setup
+    public void setup() {
+        BenchmarkSockets.silenceConsole();
+        scheduler = new GameScheduler(1);
+        room = new Room("bench", scheduler, MappedWordBank.fromDefaultResource());
+        player = session("jogador1");
+        session("jogador2");
+        room.beginMatch();
+    }
+
+    @TearDown
+    public void teardown() {
+        scheduler.shutdown();
+    }
+
+    @Benchmark
+    public void correctAnswer() {
+        if (!room.isPlaying()) room.beginMatch();
+        room.onMessage(player, room.currentWord(player));
+    }
+
+    @Benchmark
+    public void wrongAnswer() {
+        if (!room.isPlaying()) room.beginMatch();
+        room.onMessage(player, "resposta errada");
+    }
+
+    private PlayerSession session(String name) {
+        PlayerSession session = new PlayerSession(name, BenchmarkSockets.socket("/bench/" + name), binary);
+        session.setRoom(room);
+        room.join(session);
+        return session;
+    }
+}
@@ -0,0 +1,36 @@
+package br.usp.each.typerace.server;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.drafts.Draft_6455;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Utilitários comuns aos benchmarks do servidor.
+ */
+final class BenchmarkSockets {
+
+    private BenchmarkSockets() {
+    }
+
+    /**
+     * Cria socket falso, aberto, com draft real. O mock não registra invocações, para não crescer durante a medição.
+     */
+    static WebSocket socket(String descriptor) {
+        WebSocket conn = mock(WebSocket.class, withSettings().stubOnly());
+        when(conn.getDraft()).thenReturn(new Draft_6455());
+        when(conn.isOpen()).thenReturn(true);
+        when(conn.getResourceDescriptor()).thenReturn(descriptor);
+        return conn;
+    }
+
+    /**
+     * Descarta a saída padrão, para que as mensagens de console do servidor não entrem na medição.
+     */
+    static void silenceConsole() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+}
@@ -0,0 +1,39 @@
+package br.usp.each.typerace.server;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede a transmissão de um tick de contagem regressiva e de uma palavra para N inscritos de uma sala.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BroadcastBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int subscribers;
+
+    @Param({"false", "true"})
+    public boolean binary;
+
+    private Broadcaster broadcaster;
+
+    @Setup
+    public void setup() {
+        broadcaster = new Broadcaster();
+        for (int i = 0; i < subscribers; i++) {
+            broadcaster.subscribe(new PlayerSession("jogador" + i, BenchmarkSockets.socket("/bench/jogador" + i), binary));
+        }
+    }
+
+    @Benchmark
+    public void countdownTick() {
+        broadcaster.publish(new MessageBatch(!binary, binary).countdown(3));
+    }
+
+    @Benchmark
+    public void firstWord() {
+        broadcaster.publish(new MessageBatch(!binary, binary).line("Iniciando partida.").word(1, "Computação"));
+    }
+}
@@ -0,0 +1,67 @@
+package br.usp.each.typerace.server;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede o fim de partida ({@link Room#endGame()}): leitura da classificação e montagem/transmissão do placar,
+ * e as consultas da classificação ao vivo usadas pelo comando /placar.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LeaderboardBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int players;
+
+    private GameScheduler scheduler;
+
+    private Room room;
+
+    private final List<PlayerSession> sessions = new ArrayList<>();
+
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup
+    public void setup() {
+        BenchmarkSockets.silenceConsole();
+        scheduler = new GameScheduler(1);
+        room = new Room("bench", scheduler, MappedWordBank.fromDefaultResource());
+        for (int i = 0; i < players; i++) {
+            PlayerSession session = new PlayerSession("jogador" + i, BenchmarkSockets.socket("/bench/jogador" + i), false);
+            session.setRoom(room);
+            room.join(session);
+            sessions.add(session);
+        }
+    }
+
+    @TearDown
+    public void teardown() {
+        scheduler.shutdown();
+    }
+
+    @Setup(Level.Invocation)
+    public void playMatch() {
+        room.beginMatch();
+        for (PlayerSession session : sessions) {
+            session.points = random.nextInt(20);
+            session.errors = random.nextInt(10);
+            room.getStandings().update(session);
+        }
+    }
+
+    @Benchmark
+    public void endGame() {
+        room.endGame();
+    }
+
+    @Benchmark
+    public int rankAndTop() {
+        Standings standings = room.getStandings();
+        return standings.rank(sessions.get(random.nextInt(players))) + standings.top(Room.STANDINGS_TOP).size();
+    }
+}
@@ -0,0 +1,56 @@
+package br.usp.each.typerace.server;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara os modos do {@link GameScheduler}: entrega de uma rajada de tarefas a várias salas e espera pela execução
+ * de todas, nas pistas de plataforma e nas pistas de threads virtuais (este último só com Java 21 ou maior).
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SchedulerBenchmark {
+
+    private static final int TASKS = 1000;
+
+    @Param({"plataforma", "virtual"})
+    public String mode;
+
+    @Param({"10", "1000"})
+    public int rooms;
+
+    private GameScheduler scheduler;
+
+    private String[] roomIds;
+
+    @Setup
+    public void setup() {
+        if (mode.equals("virtual")) {
+            if (!GameScheduler.virtualThreadsAvailable()) throw new IllegalStateException("Modo virtual exige Java 21 ou maior");
+            scheduler = GameScheduler.virtualThreads();
+        } else {
+            scheduler = new GameScheduler();
+        }
+        roomIds = new String[rooms];
+        for (int i = 0; i < rooms; i++) {
+            roomIds[i] = "sala" + i;
+        }
+    }
+
+    @TearDown
+    public void teardown() {
+        scheduler.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS)
+    public void dispatch() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(TASKS);
+        for (int i = 0; i < TASKS; i++) {
+            scheduler.execute(roomIds[i % rooms], done::countDown);
+        }
+        done.await();
+    }
+}
@@ -1,48 +1,321 @@
 package br.usp.each.typerace.client;
 
 import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.java_websocket.framing.CloseFrame;
 import org.java_websocket.handshake.ServerHandshake;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
 
 public class Client extends WebSocketClient {
 
+    /**
+     * Quantidade máxima de tentativas seguidas de reconexão após queda da conexão.
+     */
+    static final int MAX_RECONNECT_ATTEMPTS = 5;
+
+    /**
+     * Espera antes da primeira tentativa de reconexão; dobra a cada nova tentativa.
+     */
+    static final long RECONNECT_DELAY_MILLIS = 1000;
+
+    /**
+     * Quantidade máxima de redirecionamentos seguidos entre instâncias do servidor antes de entrar na sala.
+     */
+    static final int MAX_REDIRECTS = 3;
+
     private int wrongAnswers = 0;
     private int correctAnswers = 0;
 
     /**
-     * Construtor.
+     * Estatísticas de digitação da última partida, medidas pelo servidor e já formatadas; null se ainda não recebidas.
+     */
+    private String typingStats;
+
+    /**
+     * Indica se o cliente pediu o protocolo binário no handshake.
+     */
+    private final boolean requestBinary;
+
+    /**
+     * Indica se o servidor confirmou o protocolo binário; caso contrário, o cliente usa o protocolo de texto.
+     */
+    private volatile boolean binary = false;
+
+    /**
+     * Token de retomada da sessão recebido do servidor; null até a entrada na sala.
+     */
+    private volatile String sessionToken;
+
+    private int reconnectAttempts = 0;
+
+    private int redirects = 0;
+
+    /**
+     * Indica que o handshake da conexão atual foi aceito.
+     */
+    private boolean connected = false;
+
+    /**
+     * Indica que a conexão foi encerrada de vez (sem reconexão).
+     */
+    private volatile boolean finished = false;
+
+    private final CountDownLatch finishedLatch = new CountDownLatch(1);
+
+    /**
+     * Tela em que as mensagens são exibidas; a thread do WebSocket só registra as mudanças nela.
+     */
+    private final Terminal terminal;
+
+    /**
+     * Pontuação dos jogadores da sala na partida atual, na ordem em que apareceram.
+     */
+    private final Map<String, Integer> roomScores = new LinkedHashMap<>();
+
+    /**
+     * Construtor. Usa o protocolo de texto.
      * @param serverUri URI com o qual o cliente se conecta.
      */
     public Client(URI serverUri) {
-        super(serverUri);
+        this(serverUri, false);
     }
 
     /**
-     * Chamada quando a conexão com o servidor é estabelecida.
-     * @param handshakedata ?
+     * Construtor. Exibe as mensagens no console, com a thread da tela já iniciada.
+     * @param serverUri URI com o qual o cliente se conecta.
+     * @param requestBinary Indica se o protocolo binário deve ser pedido ao servidor no handshake.
+     */
+    public Client(URI serverUri, boolean requestBinary) {
+        this(serverUri, requestBinary, Terminal.console());
+        terminal.start();
+    }
+
+    /**
+     * Construtor. Oferece ao servidor a compressão permessage-deflate ({@link DeflateExtension}).
+     * @param serverUri URI com o qual o cliente se conecta.
+     * @param requestBinary Indica se o protocolo binário deve ser pedido ao servidor no handshake.
+     * @param terminal Tela em que as mensagens são exibidas (a thread da tela é iniciada por quem a cria).
+     */
+    public Client(URI serverUri, boolean requestBinary, Terminal terminal) {
+        super(serverUri, DeflateExtension.draft(), requestBinary ? Collections.singletonMap(Protocol.HEADER, Protocol.BINARY_V1) : Collections.emptyMap(), 0);
+        this.requestBinary = requestBinary;
+        this.terminal = terminal;
+    }
+
+    /**
+     * Chamada quando a conexão com o servidor é estabelecida. Verifica se o servidor aceitou o protocolo binário.
+     * @param handshakedata Resposta de handshake do servidor.
      */
     @Override
     public void onOpen(ServerHandshake handshakedata) {
-        System.out.println("Conexão estabelecida com o servidor.");
+        binary = requestBinary && Protocol.BINARY_V1.equals(handshakedata.getFieldValue(Protocol.HEADER));
+        reconnectAttempts = 0;
+        connected = true;
+        terminal.println("Conexão estabelecida com o servidor.");
     }
 
     /**
-     * Chamada quando uma mensagem é recebida do servidor. Deve, por exemplo, imprimí-las.
+     * Envia o texto digitado pelo jogador, no protocolo negociado.
+     * @param input Texto digitado.
+     */
+    public void sendInput(String input) {
+        try {
+            if (binary) send(Protocol.encodeAnswer(input));
+            else send(input);
+        } catch (WebsocketNotConnectedException e) {
+            terminal.println("Sem conexão com o servidor. Aguarde a reconexão.");
+        }
+    }
+
+    /**
+     * Indica se a conexão foi encerrada de vez, sem nova tentativa de reconexão.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Espera a conexão ser encerrada de vez.
+     */
+    public void awaitFinished() throws InterruptedException {
+        finishedLatch.await();
+    }
+
+    /**
+     * Guarda o token de retomada da sessão e o inclui nos handshakes das próximas conexões.
+     * @param token Token recebido do servidor.
+     */
+    private void setSessionToken(String token) {
+        sessionToken = token;
+        redirects = 0;
+        addHeader(Protocol.SESSION_HEADER, token);
+    }
+
+    /**
+     * Chamada quando uma mensagem é recebida do servidor. O servidor agrupa as linhas de um mesmo evento em um único quadro, separadas por '\n'.
      * @param message String da mensagem.
      */
     @Override
     public void onMessage(String message) {
-        if (message.contains(":errors:")) wrongAnswers = Integer.parseInt(message.substring(8));
-        else if (message.contains(":correct:")) correctAnswers = Integer.parseInt(message.substring(9));
-        else if (message.equals(":informStats:")) System.out.println("Você acertou " + correctAnswers + " e errou " + wrongAnswers + " palavras.");
-        else System.out.println(message);
+        int start = 0;
+        int end;
+        while ((end = message.indexOf('\n', start)) >= 0) {
+            onLine(message.substring(start, end));
+            start = end + 1;
+        }
+        onLine(start == 0 ? message : message.substring(start));
+    }
+
+    /**
+     * Chamada quando um quadro binário ({@link Protocol}) é recebido do servidor. Cada registro do quadro é tratado em ordem e
+     * só registrado na tela; o desenho fica com a thread da tela.
+     * @param bytes Quadro binário.
+     */
+    @Override
+    public void onMessage(ByteBuffer bytes) {
+        if (!bytes.hasRemaining() || bytes.get() != Protocol.VERSION) return;
+        while (bytes.hasRemaining()) {
+            byte opcode = bytes.get();
+            switch (opcode) {
+                case Protocol.TEXT:
+                    String text = Protocol.readString(bytes);
+                    // O título do placar parcial não vira linha: as pontuações seguintes vão para a linha de estado
+                    if (!bytes.hasRemaining() || bytes.get(bytes.position()) != Protocol.SCORE_UPDATE) terminal.println(text);
+                    break;
+                case Protocol.WORD:
+                    int number = bytes.getInt();
+                    terminal.word(number, Protocol.readString(bytes));
+                    break;
+                case Protocol.ANSWER_RESULT:
+                    boolean correct = bytes.get() == 1;
+                    correctAnswers = bytes.getInt();
+                    wrongAnswers = bytes.getInt();
+                    terminal.answer(correct, correctAnswers, wrongAnswers);
+                    break;
+                case Protocol.SCORE_UPDATE:
+                    String player = Protocol.readString(bytes);
+                    roomScores.put(player, bytes.getInt());
+                    terminal.scores(formatScores());
+                    break;
+                case Protocol.COUNTDOWN:
+                    if (!roomScores.isEmpty()) roomScores.clear();
+                    terminal.countdown(bytes.get());
+                    break;
+                case Protocol.SESSION:
+                    setSessionToken(Protocol.readString(bytes));
+                    break;
+                case Protocol.RESUMED:
+                    correctAnswers = bytes.getInt();
+                    wrongAnswers = bytes.getInt();
+                    terminal.score(correctAnswers, wrongAnswers);
+                    break;
+                case Protocol.TYPING_STATS:
+                    correctAnswers = bytes.getInt();
+                    wrongAnswers = bytes.getInt();
+                    typingStats = formatTypingStats(bytes.getInt(), bytes.getInt(), bytes.getInt(), bytes.getInt(), bytes.getInt());
+                    informStats();
+                    break;
+                case Protocol.LEADERBOARD:
+                    int rank = bytes.getInt();
+                    String name = Protocol.readString(bytes);
+                    int points = bytes.getInt();
+                    int errors = bytes.getInt();
+                    terminal.println(rank + ": " + name + " (" + points + " pontos, " + errors + " erros)");
+                    break;
+                default:
+                    // Opcode desconhecido: o restante do quadro não pode ser interpretado
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Trata uma linha de mensagem do servidor. As linhas que não são comandos do protocolo vão para a tela.
+     * @param message Linha da mensagem.
+     */
+    private void onLine(String message) {
+        if (message.startsWith(":sessao:")) {
+            setSessionToken(message.substring(8));
+        } else if (message.contains(":errors:")) {
+            wrongAnswers = Integer.parseInt(message.substring(8));
+            terminal.score(correctAnswers, wrongAnswers);
+        } else if (message.contains(":correct:")) {
+            correctAnswers = Integer.parseInt(message.substring(9));
+            terminal.score(correctAnswers, wrongAnswers);
+        } else if (message.startsWith(":stats:")) {
+            typingStats = parseTypingStats(message.substring(7));
+        } else if (message.equals(":informStats:")) {
+            informStats();
+        } else {
+            terminal.println(message);
+        }
     }
 
     /**
-     * Chamada quando a conexão é encerrada.
+     * Exibe o desempenho do jogador na partida encerrada e limpa a linha de estado.
+     */
+    private void informStats() {
+        roomScores.clear();
+        terminal.clearStatus();
+        terminal.println("Você acertou " + correctAnswers + " e errou " + wrongAnswers + " palavras.");
+        if (typingStats != null) terminal.println(typingStats);
+        typingStats = null;
+    }
+
+    /**
+     * Formata a pontuação dos jogadores da sala para a linha de estado.
+     */
+    private String formatScores() {
+        StringBuilder scores = new StringBuilder();
+        for (Map.Entry<String, Integer> entry : roomScores.entrySet()) {
+            if (scores.length() > 0) scores.append(", ");
+            scores.append(entry.getKey()).append(' ').append(entry.getValue());
+        }
+        return scores.toString();
+    }
+
+    /**
+     * Interpreta a linha ":stats:" do protocolo de texto (valores separados por vírgula, na ordem do registro binário).
+     * @param values Valores da linha, sem o prefixo.
+     * @return Estatísticas formatadas, ou null se a linha é inválida.
+     */
+    private static String parseTypingStats(String values) {
+        String[] parts = values.split(",");
+        if (parts.length != 5) return null;
+        try {
+            return formatTypingStats(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+                    Integer.parseInt(parts[3]), Integer.parseInt(parts[4]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Formata as estatísticas de digitação enviadas pelo servidor.
+     * @param wpmTenths Palavras por minuto, em décimos.
+     * @param accuracyTenths Precisão, em décimos de porcentagem.
+     * @param p50 Mediana do tempo de resposta (ms).
+     * @param p90 Percentil 90 do tempo de resposta (ms).
+     * @param p99 Percentil 99 do tempo de resposta (ms).
+     */
+    private static String formatTypingStats(int wpmTenths, int accuracyTenths, int p50, int p90, int p99) {
+        return "Velocidade: " + wpmTenths / 10 + "," + wpmTenths % 10 + " palavras por minuto. Precisão: "
+                + accuracyTenths / 10 + "," + accuracyTenths % 10 + "%. Tempo de resposta: mediana " + p50 + " ms, p90 " + p90
+                + " ms, p99 " + p99 + " ms.";
+    }
+
+    /**
+     * Chamada quando a conexão é encerrada. Se a conexão caiu (sem fechamento normal) e o servidor já enviou o token da sessão,
+     * tenta reconectar e retomar a partida de onde parou; senão, marca a conexão como encerrada, liberando
+     * {@link #awaitFinished()}. Não encerra o processo: isso fica com quem criou o cliente.
      * @param code Código de erro (conferir em <a href="https://github.com/Luka967/websocket-close-codes">WebSocket Close Codes</a>)
      * @param reason String descrevendo o erro
      * @param remote Indica se decisão de saída foi tomada local ou remotamente (em relação ao cliente)
@@ -50,8 +323,55 @@ public class Client extends WebSocketClient {
     @Override
     public void onClose(int code, String reason, boolean remote) {
         if (code == -1) reason = "URI inválida";
-        System.out.println("Desconectado. Motivo: " + reason + " (Cód. " + code + "). " + (remote ? "Desconectado pelo cliente." : "Desconectado pelo servidor."));
-        System.exit(0);
+        // O servidor recusa nome inválido ou em uso e servidor lotado no handshake, sem chegar a abrir a conexão
+        else if (code == CloseFrame.PROTOCOL_ERROR && !connected) reason = "Conexão recusada pelo servidor (nome inválido ou em uso, ou servidor lotado)";
+        connected = false;
+        terminal.println("Desconectado. Motivo: " + reason + " (Cód. " + code + "). " + (remote ? "Desconectado pelo cliente." : "Desconectado pelo servidor."));
+        if (code == Protocol.CLOSE_REDIRECT && redirects < MAX_REDIRECTS) {
+            URI target = Protocol.redirectTarget(uri, reason);
+            if (target != null) {
+                redirects++;
+                // A sala pertence a outra instância do servidor; reconecta lá com a mesma sala e o mesmo nome
+                uri = target;
+                terminal.println("Conectando à instância da sala na porta " + target.getPort() + "...");
+                reconnectAfter(0);
+                return;
+            }
+        }
+        if (shouldReconnect(code) && reconnectAttempts < MAX_RECONNECT_ATTEMPTS) {
+            long delay = RECONNECT_DELAY_MILLIS << reconnectAttempts++;
+            terminal.println("Tentando reconectar em " + delay / 1000 + " s...");
+            reconnectAfter(delay);
+            return;
+        }
+        finished = true;
+        finishedLatch.countDown();
+    }
+
+    /**
+     * Reconecta após a espera informada, em outra thread: a biblioteca não permite reconectar a partir da própria thread do WebSocket.
+     * @param delay Espera (ms) antes da reconexão.
+     */
+    private void reconnectAfter(long delay) {
+        Thread reconnect = new Thread(() -> {
+            try {
+                Thread.sleep(delay);
+                reconnect();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "typerace-reconexao");
+        reconnect.setDaemon(true);
+        reconnect.start();
+    }
+
+    /**
+     * Indica se o fechamento é uma queda de conexão, em que vale tentar retomar a sessão. Fechamentos normais, saídas e
+     * recusas do servidor (códigos 4000 a 4999) encerram o cliente.
+     * @param code Código de fechamento.
+     */
+    private boolean shouldReconnect(int code) {
+        return sessionToken != null && code != CloseFrame.NORMAL && code != CloseFrame.GOING_AWAY && (code < 4000 || code > 4999);
     }
 
     @Override
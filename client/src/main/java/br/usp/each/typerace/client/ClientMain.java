@@ -38,6 +38,7 @@ public class ClientMain {
     public static void main(String[] args) {
 
         String uriInput;
+        String roomInput;
         String idInput;
 
         Scanner sc = new Scanner(System.in);
@@ -46,6 +47,10 @@ public class ClientMain {
         if (uriInput.isEmpty()) uriInput = "ws://localhost:8080";
         System.out.println();
 
+        System.out.println("Informe a sala em que deseja jogar. Deixe em branco para a sala principal. (sem espaços ou acentos)");
+        roomInput = sc.nextLine().replace("\n", "");
+        System.out.println();
+
         do {
             System.out.println("Informe um nome para se identificar no servidor. (sem espaços ou acentos)");
             idInput = sc.nextLine().replace("\n", "");
@@ -54,18 +59,36 @@ public class ClientMain {
         } while (true);
         System.out.println();
 
+        Terminal terminal = Terminal.console();
         try {
-            WebSocketClient client = new Client(new URI(uriInput + "/" + idInput));
+            Client client = new Client(new URI(uriInput + (roomInput.isEmpty() ? "" : "/" + roomInput) + "/" + idInput), true, terminal);
             ClientMain main = new ClientMain(client);
 
+            terminal.start();
             main.init(idInput);
 
-            while (!main.client.isClosed()) {
-                main.client.send(sc.nextLine());
-            }
-
+            // A leitura do teclado bloqueia; roda em thread própria, e a principal só espera o fim da conexão
+            Thread input = new Thread(() -> readInput(client, sc), "typerace-entrada");
+            input.setDaemon(true);
+            input.start();
+            client.awaitFinished();
+            terminal.stop();
         } catch (URISyntaxException e) {
             e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Envia ao servidor cada linha digitada, até a conexão ser encerrada. Ao fim da entrada (Ctrl+D), sai da sala.
+     * @param client Cliente conectado ao servidor
+     * @param sc Leitor da entrada do jogador
+     */
+    static void readInput(Client client, Scanner sc) {
+        while (!client.isFinished() && sc.hasNextLine()) {
+            client.sendInput(sc.nextLine());
         }
+        if (!client.isFinished()) client.close();
     }
 }
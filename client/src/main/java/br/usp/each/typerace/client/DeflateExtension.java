@@ -0,0 +1,39 @@
+package br.usp.each.typerace.client;
+
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.framing.DataFrame;
+import org.java_websocket.framing.Framedata;
+
+/**
+ * Extensão permessage-deflate do cliente. Oferece a compressão ao servidor, que comprime as mensagens grandes (regras,
+ * placar), e só comprime as próprias mensagens a partir de {@link #THRESHOLD} bytes: as respostas de cada palavra vão
+ * sem compressão.
+ */
+public class DeflateExtension extends PerMessageDeflateExtension {
+
+    /**
+     * Tamanho mínimo (bytes) das mensagens comprimidas pelo cliente.
+     */
+    static final int THRESHOLD = 256;
+
+    /**
+     * Draft do RFC 6455 que oferece esta extensão no handshake; sem ela, se o servidor não a aceitar.
+     */
+    public static Draft draft() {
+        return new Draft_6455(new DeflateExtension());
+    }
+
+    @Override
+    public void encodeFrame(Framedata frame) {
+        if (!(frame instanceof DataFrame) || frame.isRSV1() || frame.getPayloadData().remaining() < THRESHOLD) return;
+        super.encodeFrame(frame);
+    }
+
+    @Override
+    public IExtension copyInstance() {
+        return new DeflateExtension();
+    }
+}
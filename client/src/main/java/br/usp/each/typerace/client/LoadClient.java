@@ -0,0 +1,171 @@
+package br.usp.each.typerace.client;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.handshake.ServerHandshake;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jogador simulado do gerador de carga. Usa o protocolo binário, envia /pronto ao conectar e ao fim de cada partida
+ * e responde cada palavra recebida após o tempo de digitação, errando com a probabilidade configurada.
+ */
+public class LoadClient extends WebSocketClient {
+
+    private final LoadStats stats;
+
+    private final ScheduledExecutorService typist;
+
+    /**
+     * Tempo de digitação por caractere, em nanossegundos.
+     */
+    private final long nanosPerChar;
+
+    private final double errorRate;
+
+    private volatile long connectStartedAt;
+
+    private volatile long answerSentAt;
+
+    /**
+     * Construtor.
+     * @param serverUri URI com sala e nome do jogador simulado
+     * @param stats Estatísticas compartilhadas
+     * @param typist Executor que agenda as respostas
+     * @param wpm Velocidade de digitação, em palavras (de 5 caracteres) por minuto
+     * @param errorRate Probabilidade de errar cada palavra, entre 0 e 1
+     */
+    public LoadClient(URI serverUri, LoadStats stats, ScheduledExecutorService typist, double wpm, double errorRate) {
+        this(serverUri, stats, typist, wpm, errorRate, false);
+    }
+
+    /**
+     * Construtor.
+     * @param serverUri URI com sala e nome do jogador simulado
+     * @param stats Estatísticas compartilhadas
+     * @param typist Executor que agenda as respostas
+     * @param wpm Velocidade de digitação, em palavras (de 5 caracteres) por minuto
+     * @param errorRate Probabilidade de errar cada palavra, entre 0 e 1
+     * @param compression Indica se a compressão permessage-deflate deve ser oferecida ao servidor
+     */
+    public LoadClient(URI serverUri, LoadStats stats, ScheduledExecutorService typist, double wpm, double errorRate, boolean compression) {
+        super(serverUri, compression ? DeflateExtension.draft() : new Draft_6455(), Collections.singletonMap(Protocol.HEADER, Protocol.BINARY_V1), 0);
+        this.stats = stats;
+        this.typist = typist;
+        this.nanosPerChar = (long) (TimeUnit.MINUTES.toNanos(1) / (wpm * 5));
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * Inicia a conexão, registrando o instante para medir a latência do handshake.
+     */
+    public void start() {
+        connectStartedAt = System.nanoTime();
+        connect();
+    }
+
+    @Override
+    public void onOpen(ServerHandshake handshakedata) {
+        stats.connectLatency.record(System.nanoTime() - connectStartedAt);
+        stats.connected.increment();
+        send(Protocol.encodeAnswer("/pronto"));
+    }
+
+    /**
+     * Mensagens de texto são ignoradas; o jogador simulado só entende o protocolo binário.
+     * @param message String da mensagem.
+     */
+    @Override
+    public void onMessage(String message) {
+    }
+
+    @Override
+    public void onMessage(ByteBuffer bytes) {
+        long receivedAt = System.nanoTime();
+        if (!bytes.hasRemaining() || bytes.get() != Protocol.VERSION) return;
+        boolean matchEnded = false;
+        while (bytes.hasRemaining()) {
+            switch (bytes.get()) {
+                case Protocol.TEXT:
+                case Protocol.SESSION:
+                    Protocol.readString(bytes);
+                    break;
+                case Protocol.WORD:
+                    bytes.getInt();
+                    type(Protocol.readString(bytes));
+                    break;
+                case Protocol.ANSWER_RESULT:
+                    stats.answerLatency.record(receivedAt - answerSentAt);
+                    (bytes.get() == 1 ? stats.correct : stats.wrong).increment();
+                    bytes.getInt();
+                    bytes.getInt();
+                    break;
+                case Protocol.SCORE_UPDATE:
+                    Protocol.readString(bytes);
+                    bytes.getInt();
+                    break;
+                case Protocol.COUNTDOWN:
+                    bytes.get();
+                    break;
+                case Protocol.TYPING_STATS:
+                    bytes.position(bytes.position() + 7 * 4);
+                    break;
+                case Protocol.LEADERBOARD:
+                    bytes.getInt();
+                    Protocol.readString(bytes);
+                    bytes.getInt();
+                    bytes.getInt();
+                    matchEnded = true;
+                    break;
+                default:
+                    return;
+            }
+        }
+        if (matchEnded) {
+            stats.leaderboards.increment();
+            typist.schedule(() -> {
+                if (isOpen()) send(Protocol.encodeAnswer("/pronto"));
+            }, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Agenda a resposta a uma palavra após o tempo de digitação.
+     * @param word Palavra recebida
+     */
+    private void type(String word) {
+        typist.schedule(() -> {
+            if (!isOpen()) return;
+            String answer = (ThreadLocalRandom.current().nextDouble() < errorRate) ? word + "#" : word;
+            answerSentAt = System.nanoTime();
+            send(Protocol.encodeAnswer(answer));
+            stats.answers.increment();
+        }, word.length() * nanosPerChar, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onClose(int code, String reason, boolean remote) {
+        stats.disconnected.increment();
+        if (code == Protocol.CLOSE_REDIRECT) {
+            URI target = Protocol.redirectTarget(uri, reason);
+            if (target == null) return;
+            // A sala pertence a outra instância do servidor; a reconexão não pode rodar na thread do WebSocket
+            uri = target;
+            stats.redirected.increment();
+            typist.execute(() -> {
+                connectStartedAt = System.nanoTime();
+                reconnect();
+            });
+        }
+    }
+
+    @Override
+    public void onError(Exception ex) {
+        stats.errors.increment();
+    }
+}
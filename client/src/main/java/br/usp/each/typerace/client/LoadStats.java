@@ -0,0 +1,35 @@
+package br.usp.each.typerace.client;
+
+import br.usp.each.typerace.common.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores e histogramas compartilhados pelos clientes do gerador de carga.
+ */
+public class LoadStats {
+
+    /**
+     * Latência entre o envio de uma resposta e o recebimento do seu resultado.
+     */
+    final LatencyHistogram answerLatency = new LatencyHistogram();
+
+    /**
+     * Latência entre o início da conexão e o fim do handshake.
+     */
+    final LatencyHistogram connectLatency = new LatencyHistogram();
+
+    final LongAdder connected = new LongAdder();
+    final LongAdder disconnected = new LongAdder();
+    final LongAdder errors = new LongAdder();
+
+    /**
+     * Conexões redirecionadas para a instância do servidor dona da sala.
+     */
+    final LongAdder redirected = new LongAdder();
+
+    final LongAdder answers = new LongAdder();
+    final LongAdder correct = new LongAdder();
+    final LongAdder wrong = new LongAdder();
+    final LongAdder leaderboards = new LongAdder();
+}
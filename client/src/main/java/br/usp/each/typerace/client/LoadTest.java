@@ -0,0 +1,117 @@
+package br.usp.each.typerace.client;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Gerador de carga: abre N conexões com o servidor (em geral local, ws://localhost:8080), distribuídas entre salas,
+ * e simula jogadores digitando. Imprime periodicamente a vazão e os histogramas de latência.
+ * <p>
+ * Uso: LoadTest [--uri=ws://localhost:8080] [--clientes=100] [--salas=10] [--wpm=60] [--erros=0.05] [--duracao=60] [--conexoes-por-segundo=200]
+ * [--compressao=false]
+ */
+public class LoadTest {
+
+    private static final long REPORT_INTERVAL_SECONDS = 5;
+
+    private String uri = "ws://localhost:8080";
+    private int clients = 100;
+    private int rooms = 10;
+    private double wpm = 60;
+    private double errorRate = 0.05;
+    private int durationSeconds = 60;
+    private int connectsPerSecond = 200;
+    private boolean compression = false;
+
+    private final LoadStats stats = new LoadStats();
+
+    /**
+     * Lê as opções da linha de comando, no formato --nome=valor.
+     * @param args Argumentos passados pela linha de comando
+     */
+    LoadTest(String[] args) {
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) throw new IllegalArgumentException("Opção inválida: " + arg);
+            String name = arg.substring(2, eq);
+            String value = arg.substring(eq + 1);
+            switch (name) {
+                case "uri": uri = value; break;
+                case "clientes": clients = Integer.parseInt(value); break;
+                case "salas": rooms = Math.max(1, Integer.parseInt(value)); break;
+                case "wpm": wpm = Double.parseDouble(value); break;
+                case "erros": errorRate = Double.parseDouble(value); break;
+                case "duracao": durationSeconds = Integer.parseInt(value); break;
+                case "conexoes-por-segundo": connectsPerSecond = Math.max(1, Integer.parseInt(value)); break;
+                case "compressao": compression = Boolean.parseBoolean(value); break;
+                default: throw new IllegalArgumentException("Opção desconhecida: " + arg);
+            }
+        }
+    }
+
+    /**
+     * Executa o teste de carga e imprime o relatório final.
+     */
+    void run() throws URISyntaxException, InterruptedException {
+        System.out.println("Teste de carga: " + clients + " clientes em " + rooms + " salas, " + wpm + " wpm, " + (errorRate * 100) + "% de erros, " + durationSeconds + " s, " + (compression ? "com" : "sem") + " compressão, contra " + uri);
+        ScheduledExecutorService typist = Executors.newScheduledThreadPool(2, r -> {
+            Thread t = new Thread(r, "typerace-carga");
+            t.setDaemon(true);
+            return t;
+        });
+        List<LoadClient> connections = new ArrayList<>(clients);
+
+        long start = System.nanoTime();
+        long connectInterval = TimeUnit.SECONDS.toNanos(1) / connectsPerSecond;
+        for (int i = 0; i < clients; i++) {
+            LoadClient client = new LoadClient(new URI(uri + "/carga" + (i % rooms) + "/robo" + i), stats, typist, wpm, errorRate, compression);
+            connections.add(client);
+            client.start();
+            LockSupport.parkNanos(start + (i + 1) * connectInterval - System.nanoTime());
+        }
+        double connectSeconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d conexões iniciadas em %.1f s (%.0f/s)%n", clients, connectSeconds, clients / connectSeconds);
+
+        long end = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long lastAnswers = 0;
+        long lastReport = System.nanoTime();
+        while (System.nanoTime() < end) {
+            Thread.sleep(TimeUnit.SECONDS.toMillis(REPORT_INTERVAL_SECONDS));
+            long now = System.nanoTime();
+            long answers = stats.answers.sum();
+            System.out.printf("[%3.0f s] conectados=%d respostas/s=%.0f latência: %s%n",
+                    (now - start) / 1e9, stats.connected.sum() - stats.disconnected.sum(),
+                    (answers - lastAnswers) / ((now - lastReport) / 1e9), stats.answerLatency.summary());
+            lastAnswers = answers;
+            lastReport = now;
+        }
+
+        for (LoadClient client : connections) {
+            client.close();
+        }
+        typist.shutdownNow();
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println("----- Resultado -----");
+        System.out.printf("Conexões: %d abertas, %d encerradas, %d redirecionadas, %d erros%n", stats.connected.sum(), stats.disconnected.sum(),
+                stats.redirected.sum(), stats.errors.sum());
+        System.out.println("Latência de conexão: " + stats.connectLatency.summary());
+        System.out.printf("Respostas: %d (%d certas, %d erradas), vazão média %.0f/s%n", stats.answers.sum(), stats.correct.sum(), stats.wrong.sum(), stats.answers.sum() / seconds);
+        System.out.println("Latência resposta -> resultado: " + stats.answerLatency.summary());
+        System.out.println("Placares recebidos: " + stats.leaderboards.sum());
+    }
+
+    /**
+     * Método inicial do gerador de carga.
+     * @param args Opções no formato --nome=valor (ver documentação da classe)
+     */
+    public static void main(String[] args) throws URISyntaxException, InterruptedException {
+        new LoadTest(args).run();
+    }
+}
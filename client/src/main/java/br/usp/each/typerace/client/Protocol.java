@@ -0,0 +1,93 @@
+package br.usp.each.typerace.client;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lado do cliente do protocolo binário do Typerace (versão 1). Deve ser mantido em sincronia com a classe
+ * Protocol do servidor, que documenta o formato dos registros.
+ */
+public final class Protocol {
+
+    /**
+     * Cabeçalho HTTP usado na negociação do protocolo.
+     */
+    public static final String HEADER = "Typerace-Protocol";
+
+    /**
+     * Valor do cabeçalho que identifica o protocolo binário versão 1.
+     */
+    public static final String BINARY_V1 = "bin1";
+
+    /**
+     * Cabeçalho HTTP com o token de retomada da sessão, enviado ao reconectar.
+     */
+    public static final String SESSION_HEADER = "Typerace-Session";
+
+    /**
+     * Código de fechamento com que o servidor redireciona o cliente para a instância dona da sala; o motivo é a porta dela.
+     */
+    public static final int CLOSE_REDIRECT = 4010;
+
+    public static final byte VERSION = 1;
+
+    public static final byte TEXT = 0x01;
+    public static final byte WORD = 0x02;
+    public static final byte ANSWER_RESULT = 0x03;
+    public static final byte SCORE_UPDATE = 0x04;
+    public static final byte COUNTDOWN = 0x05;
+    public static final byte LEADERBOARD = 0x06;
+    public static final byte SESSION = 0x07;
+    public static final byte RESUMED = 0x08;
+    public static final byte TYPING_STATS = 0x09;
+    public static final byte ANSWER = 0x10;
+
+    private Protocol() {
+    }
+
+    /**
+     * URI da instância para a qual o servidor redirecionou o cliente ({@link #CLOSE_REDIRECT}): a mesma URI, com a porta
+     * informada no motivo do fechamento.
+     *
+     * @param uri URI atual do cliente
+     * @param reason Motivo do fechamento
+     * @return URI da instância, ou null se o motivo não é uma porta válida
+     */
+    public static URI redirectTarget(URI uri, String reason) {
+        try {
+            int port = Integer.parseInt(reason.trim());
+            if (port <= 0 || port > 65535) return null;
+            return new URI(uri.getScheme(), uri.getUserInfo(), uri.getHost(), port, uri.getPath(), uri.getQuery(), uri.getFragment());
+        } catch (NumberFormatException | URISyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Lê uma string (tamanho em 16 bits seguido de bytes UTF-8).
+     *
+     * @param buffer Buffer posicionado no início da string
+     */
+    public static String readString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Codifica o texto digitado pelo jogador em um quadro {@link #ANSWER}.
+     *
+     * @param input Texto digitado
+     */
+    public static ByteBuffer encodeAnswer(String input) {
+        byte[] encoded = input.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(encoded.length, 0xFFFF);
+        ByteBuffer frame = ByteBuffer.allocate(4 + length);
+        frame.put(VERSION).put(ANSWER).putShort((short) length).put(encoded, 0, length);
+        frame.flip();
+        return frame;
+    }
+}
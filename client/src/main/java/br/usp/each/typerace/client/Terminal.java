@@ -0,0 +1,254 @@
+package br.usp.each.typerace.client;
+
+import java.io.PrintStream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Tela do cliente. A thread do WebSocket só registra as mudanças (linhas novas, palavra atual, pontuação, contagem
+ * regressiva) e a thread da tela as desenha em lotes, no máximo uma vez por quadro da taxa de atualização: uma rajada de
+ * mensagens vira uma única escrita no console, e a leitura dos quadros seguintes não espera pelo console.
+ * <p>
+ * Em um terminal, a palavra atual, a pontuação e a contagem ficam em uma linha de estado redesenhada no lugar (códigos ANSI),
+ * abaixo das mensagens; fora de um terminal, a linha de estado é impressa como uma linha comum sempre que muda.
+ */
+public class Terminal implements Runnable {
+
+    /**
+     * Taxa de atualização padrão da tela, em quadros por segundo.
+     */
+    public static final int DEFAULT_REFRESH_RATE = 60;
+
+    /**
+     * Volta ao início da linha e a apaga.
+     */
+    static final String CLEAR_LINE = "\r\033[2K";
+
+    private final PrintStream out;
+
+    private final boolean ansi;
+
+    private final long frameNanos;
+
+    /**
+     * Linhas ainda não impressas, em ordem de chegada.
+     */
+    private final ConcurrentLinkedQueue<String> lines;
+
+    private final AtomicBoolean dirty;
+
+    private volatile String word;
+
+    private volatile int countdown = -1;
+
+    private volatile int correct;
+
+    private volatile int wrong;
+
+    /**
+     * Resultado da última resposta ("Acertou!" ou "Errou."); null antes da primeira resposta da partida.
+     */
+    private volatile String lastResult;
+
+    /**
+     * Pontuação dos jogadores da sala, já formatada; null se ainda não recebida.
+     */
+    private volatile String scores;
+
+    private volatile boolean running;
+
+    private volatile Thread thread;
+
+    /**
+     * Linha de estado desenhada por último. Só acessada pela thread da tela.
+     */
+    private String drawnStatus = "";
+
+    /**
+     * Construtor.
+     * @param out Saída em que a tela é desenhada.
+     * @param ansi Indica se a saída é um terminal que aceita códigos ANSI.
+     * @param refreshRate Quadros por segundo.
+     */
+    public Terminal(PrintStream out, boolean ansi, int refreshRate) {
+        this.out = out;
+        this.ansi = ansi;
+        this.frameNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, refreshRate);
+        this.lines = new ConcurrentLinkedQueue<>();
+        this.dirty = new AtomicBoolean();
+    }
+
+    /**
+     * Cria tela no console do processo, com códigos ANSI se houver um terminal interativo.
+     */
+    public static Terminal console() {
+        return new Terminal(System.out, System.console() != null, DEFAULT_REFRESH_RATE);
+    }
+
+    /**
+     * Inicia a thread da tela.
+     */
+    public void start() {
+        running = true;
+        thread = new Thread(this, "typerace-tela");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Para a thread da tela, desenhando antes o que estiver pendente.
+     */
+    public void stop() throws InterruptedException {
+        running = false;
+        Thread t = thread;
+        if (t != null) {
+            LockSupport.unpark(t);
+            t.join(TimeUnit.SECONDS.toMillis(1));
+        }
+        render();
+        if (ansi && !drawnStatus.isEmpty()) out.println();
+        out.flush();
+    }
+
+    /**
+     * Acrescenta uma linha de mensagem acima da linha de estado.
+     * @param line Texto da linha.
+     */
+    public void println(String line) {
+        lines.add(line);
+        changed();
+    }
+
+    /**
+     * Mostra a palavra a ser digitada.
+     * @param number Número da palavra na partida.
+     * @param word Palavra.
+     */
+    public void word(int number, String word) {
+        this.word = "Palavra " + number + ": " + word;
+        this.countdown = -1;
+        changed();
+    }
+
+    /**
+     * Atualiza a pontuação do jogador.
+     * @param correct Palavras certas.
+     * @param wrong Palavras erradas.
+     */
+    public void score(int correct, int wrong) {
+        this.correct = correct;
+        this.wrong = wrong;
+        changed();
+    }
+
+    /**
+     * Atualiza o resultado da última resposta e a pontuação do jogador.
+     * @param right Indica se a resposta estava correta.
+     * @param correct Palavras certas.
+     * @param wrong Palavras erradas.
+     */
+    public void answer(boolean right, int correct, int wrong) {
+        this.lastResult = right ? "Acertou!" : "Errou.";
+        score(correct, wrong);
+    }
+
+    /**
+     * Atualiza a pontuação dos jogadores da sala.
+     * @param scores Pontuação formatada.
+     */
+    public void scores(String scores) {
+        this.scores = scores;
+        changed();
+    }
+
+    /**
+     * Mostra um tick da contagem regressiva.
+     * @param seconds Segundos restantes para o início da partida.
+     */
+    public void countdown(int seconds) {
+        this.countdown = seconds;
+        this.word = null;
+        this.lastResult = null;
+        changed();
+    }
+
+    /**
+     * Limpa a linha de estado, ao fim da partida.
+     */
+    public void clearStatus() {
+        word = null;
+        countdown = -1;
+        lastResult = null;
+        scores = null;
+        changed();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            if (!dirty.get()) {
+                LockSupport.park(this);
+                continue;
+            }
+            long deadline = System.nanoTime() + frameNanos;
+            render();
+            // Junta as mudanças que chegarem até o próximo quadro em uma única escrita
+            long remaining;
+            while (running && (remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+            }
+        }
+    }
+
+    /**
+     * Desenha as mudanças pendentes, se houver, em uma única escrita.
+     */
+    void render() {
+        if (!dirty.getAndSet(false)) return;
+        StringBuilder frame = new StringBuilder(256);
+        String line;
+        boolean printed = false;
+        while ((line = lines.poll()) != null) {
+            if (ansi && !printed) frame.append(CLEAR_LINE);
+            frame.append(line).append('\n');
+            printed = true;
+        }
+        String status = status();
+        if (ansi) {
+            if (printed || !status.equals(drawnStatus)) frame.append(CLEAR_LINE).append(status);
+        } else if (!status.isEmpty() && !status.equals(drawnStatus)) {
+            frame.append(status).append('\n');
+        }
+        drawnStatus = status;
+        if (frame.length() == 0) return;
+        out.print(frame);
+        out.flush();
+    }
+
+    /**
+     * Linha de estado atual: contagem ou palavra, pontuação do jogador e da sala.
+     */
+    String status() {
+        int seconds = countdown;
+        String current = (seconds >= 0) ? "Começa em " + seconds + "..." : word;
+        if (current == null) return "";
+        StringBuilder status = new StringBuilder(current);
+        if (seconds < 0) {
+            status.append(" | Acertos: ").append(correct).append(", erros: ").append(wrong);
+            String result = lastResult;
+            if (result != null) status.append(" (").append(result).append(')');
+        }
+        String room = scores;
+        if (room != null) status.append(" | ").append(room);
+        return status.toString();
+    }
+
+    private void changed() {
+        if (dirty.compareAndSet(false, true)) {
+            Thread t = thread;
+            if (t != null) LockSupport.unpark(t);
+        }
+    }
+}
@@ -4,6 +4,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 
+import java.util.Scanner;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -26,4 +28,13 @@ class ClientMainTest {
 
         verify(clientMock).connect();
     }
-}
\ No newline at end of file
+
+    @Test
+    void deveEnviarCadaLinhaESairAoFimDaEntrada() {
+        ClientMain.readInput(clientMock, new Scanner("casa\nbola\n"));
+
+        verify(clientMock).sendInput("casa");
+        verify(clientMock).sendInput("bola");
+        verify(clientMock).close();
+    }
+}
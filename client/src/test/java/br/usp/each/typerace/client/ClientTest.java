@@ -1,14 +1,72 @@
 package br.usp.each.typerace.client;
 
 import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.framing.CloseFrame;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
 
 class ClientTest {
 
     @InjectMocks
     WebSocketClient subject;
 
-}
\ No newline at end of file
+    private Terminal terminal;
+
+    private Client client;
+
+    @BeforeEach
+    void setup() {
+        terminal = mock(Terminal.class);
+        client = new Client(URI.create("ws://localhost:8080/sala/ana"), true, terminal);
+    }
+
+    @Test
+    void deveRegistrarPalavraEResultadoNaTela() {
+        ByteBuffer frame = ByteBuffer.allocate(64).put(Protocol.VERSION).put(Protocol.ANSWER_RESULT).put((byte) 1).putInt(2).putInt(1)
+                .put(Protocol.WORD).putInt(3);
+        putString(frame, "casa");
+
+        client.onMessage(frame.flip());
+
+        verify(terminal).answer(true, 2, 1);
+        verify(terminal).word(3, "casa");
+        verify(terminal, never()).println(anyString());
+    }
+
+    @Test
+    void deveLevarPlacarParcialParaALinhaDeEstado() {
+        ByteBuffer frame = ByteBuffer.allocate(64).put(Protocol.VERSION).put(Protocol.TEXT);
+        putString(frame, "Placar parcial:");
+        frame.put(Protocol.SCORE_UPDATE);
+        putString(frame, "ana");
+        frame.putInt(5).put(Protocol.SCORE_UPDATE);
+        putString(frame, "bia");
+        frame.putInt(3);
+
+        client.onMessage(frame.flip());
+
+        verify(terminal, never()).println(anyString());
+        verify(terminal).scores("ana 5, bia 3");
+    }
+
+    @Test
+    void deveEncerrarSemSairDoProcesso() {
+        client.onClose(CloseFrame.NORMAL, "", false);
+
+        assertTrue(client.isFinished());
+        verify(terminal).println(startsWith("Desconectado."));
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+}
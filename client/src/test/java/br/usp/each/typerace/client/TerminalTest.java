@@ -0,0 +1,76 @@
+package br.usp.each.typerace.client;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TerminalTest {
+
+    private ByteArrayOutputStream output;
+
+    @BeforeEach
+    void setup() {
+        output = new ByteArrayOutputStream();
+    }
+
+    @Test
+    void deveDesenharApenasOEstadoMaisRecenteDoLote() {
+        Terminal subject = terminal(false);
+        subject.word(1, "casa");
+        subject.answer(true, 1, 0);
+        subject.word(2, "bola");
+
+        subject.render();
+
+        assertEquals("Palavra 2: bola | Acertos: 1, erros: 0 (Acertou!)\n", printed());
+    }
+
+    @Test
+    void naoDeveRedesenharSemMudancas() {
+        Terminal subject = terminal(false);
+        subject.println("Bem-vindo!");
+        subject.render();
+        output.reset();
+
+        subject.render();
+        subject.score(0, 0);
+        subject.render();
+
+        assertEquals("", printed());
+    }
+
+    @Test
+    void deveImprimirLinhasAcimaDaLinhaDeEstadoNoTerminal() {
+        Terminal subject = terminal(true);
+        subject.countdown(3);
+        subject.println("ana entrou na sala.");
+
+        subject.render();
+
+        assertEquals(Terminal.CLEAR_LINE + "ana entrou na sala.\n" + Terminal.CLEAR_LINE + "Começa em 3...", printed());
+    }
+
+    @Test
+    void threadDaTelaDeveDesenharAsMudancas() throws InterruptedException {
+        Terminal subject = terminal(false);
+        subject.start();
+
+        subject.println("Bem-vindo!");
+        subject.stop();
+
+        assertEquals("Bem-vindo!\n", printed());
+    }
+
+    private Terminal terminal(boolean ansi) {
+        return new Terminal(new PrintStream(output, true, StandardCharsets.UTF_8), ansi, Terminal.DEFAULT_REFRESH_RATE);
+    }
+
+    private String printed() {
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
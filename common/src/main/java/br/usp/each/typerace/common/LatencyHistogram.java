@@ -0,0 +1,111 @@
+package br.usp.each.typerace.common;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latências com buckets log-lineares em microssegundos (erro relativo de até 1/16), de 1 µs a ~9 horas.
+ * O registro é livre de travas e de alocação, podendo ser feito por várias threads ao mesmo tempo.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Buckets lineares por potência de dois.
+     */
+    private static final int SUB_BUCKETS = 16;
+
+    private static final int SUB_BITS = 4;
+
+    private static final int MAGNITUDES = 32;
+
+    private final AtomicLongArray counts;
+
+    private final AtomicLong total;
+
+    private final AtomicLong sumMicros;
+
+    private final AtomicLong maxMicros;
+
+    /**
+     * Construtor.
+     */
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(MAGNITUDES * SUB_BUCKETS);
+        this.total = new AtomicLong();
+        this.sumMicros = new AtomicLong();
+        this.maxMicros = new AtomicLong();
+    }
+
+    /**
+     * Registra uma latência.
+     *
+     * @param nanos Latência em nanossegundos
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+        counts.incrementAndGet(bucketOf(micros));
+        total.incrementAndGet();
+        sumMicros.addAndGet(micros);
+        long max;
+        while (micros > (max = maxMicros.get()) && !maxMicros.compareAndSet(max, micros)) {
+            // tenta novamente
+        }
+    }
+
+    public long count() {
+        return total.get();
+    }
+
+    /**
+     * Latência média, em microssegundos.
+     */
+    public double meanMicros() {
+        long n = total.get();
+        return (n == 0) ? 0 : (double) sumMicros.get() / n;
+    }
+
+    public long maxMicros() {
+        return maxMicros.get();
+    }
+
+    /**
+     * Latência do percentil pedido, em microssegundos (limite superior do bucket).
+     *
+     * @param percentile Percentil entre 0 e 100
+     */
+    public long percentileMicros(double percentile) {
+        long n = total.get();
+        if (n == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(n * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) return Math.min(upperBoundOf(i), maxMicros.get());
+        }
+        return maxMicros.get();
+    }
+
+    /**
+     * Resumo legível do histograma.
+     */
+    public String summary() {
+        return String.format("n=%d média=%.0fµs p50=%dµs p90=%dµs p99=%dµs p99.9=%dµs máx=%dµs",
+                count(), meanMicros(), percentileMicros(50), percentileMicros(90), percentileMicros(99), percentileMicros(99.9), maxMicros());
+    }
+
+    private static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) return (int) micros;
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros) - SUB_BITS + 1;
+        if (magnitude >= MAGNITUDES) return MAGNITUDES * SUB_BUCKETS - 1;
+        int sub = (int) (micros >>> (magnitude - 1)) & (SUB_BUCKETS - 1);
+        return magnitude * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBoundOf(int bucket) {
+        int magnitude = bucket / SUB_BUCKETS;
+        int sub = bucket % SUB_BUCKETS;
+        if (magnitude == 0) return sub;
+        return ((long) (SUB_BUCKETS + sub + 1) << (magnitude - 1)) - 1;
+    }
+}
@@ -0,0 +1,43 @@
+package br.usp.each.typerace.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void histogramaVazioDeveDevolverZero() {
+        LatencyHistogram subject = new LatencyHistogram();
+
+        assertEquals(0, subject.count());
+        assertEquals(0, subject.percentileMicros(99));
+        assertEquals(0.0, subject.meanMicros());
+    }
+
+    @Test
+    void percentisDevemTerErroRelativoPequeno() {
+        LatencyHistogram subject = new LatencyHistogram();
+
+        for (int i = 1; i <= 1000; i++) {
+            subject.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        assertEquals(1000, subject.count());
+        assertEquals(1_000_000, subject.maxMicros());
+        assertEquals(500_000, subject.percentileMicros(50), 500_000 / 16.0);
+        assertEquals(990_000, subject.percentileMicros(99), 990_000 / 16.0);
+        assertEquals(500_500, subject.meanMicros(), 1);
+    }
+
+    @Test
+    void percentilNaoDeveUltrapassarOMaximo() {
+        LatencyHistogram subject = new LatencyHistogram();
+
+        subject.record(TimeUnit.MICROSECONDS.toNanos(1000));
+
+        assertEquals(1000, subject.percentileMicros(100));
+    }
+}
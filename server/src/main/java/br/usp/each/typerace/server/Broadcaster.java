@@ -0,0 +1,228 @@
+package br.usp.each.typerace.server;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.java_websocket.framing.Framedata;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transmissor das mensagens de uma sala. Mantém listas copy-on-write dos inscritos de cada protocolo e codifica
+ * cada mensagem em quadros uma única vez por draft dos inscritos, reaproveitando os quadros para todos.
+ * Inscritos com fila de saída acima do limite são considerados lentos e pulados, para não atrasar os demais; acima de um
+ * segundo limite, a conexão é derrubada (código 4005), pois o cliente não está lendo o que recebe.
+ */
+public class Broadcaster {
+
+    /**
+     * Quantidade de buffers pendentes na fila de saída a partir da qual um inscrito é considerado lento.
+     */
+    public static final int DEFAULT_SLOW_QUEUE_DEPTH = 64;
+
+    /**
+     * Quantidade de buffers pendentes na fila de saída a partir da qual a conexão de um inscrito é derrubada.
+     */
+    public static final int DEFAULT_DISCONNECT_QUEUE_DEPTH = 1024;
+
+    /**
+     * Código de fechamento das conexões derrubadas por não lerem as mensagens.
+     */
+    public static final int CLOSE_SLOW_READER = 4005;
+
+    /**
+     * Quantidade máxima de codificações distintas (uma por draft) guardadas durante uma transmissão.
+     */
+    private static final int MAX_ENCODINGS = 4;
+
+    private final List<WebSocket> textSubscribers;
+
+    private final List<WebSocket> binarySubscribers;
+
+    private final int slowQueueDepth;
+
+    private final int disconnectQueueDepth;
+
+    /**
+     * Quantidade de envios pulados por inscritos lentos.
+     */
+    private final LongAdder skipped;
+
+    /**
+     * Construtor.
+     */
+    public Broadcaster() {
+        this(DEFAULT_SLOW_QUEUE_DEPTH);
+    }
+
+    /**
+     * Construtor.
+     *
+     * @param slowQueueDepth Profundidade da fila de saída a partir da qual um inscrito é pulado
+     */
+    public Broadcaster(int slowQueueDepth) {
+        this(slowQueueDepth, DEFAULT_DISCONNECT_QUEUE_DEPTH);
+    }
+
+    /**
+     * Construtor.
+     *
+     * @param slowQueueDepth Profundidade da fila de saída a partir da qual um inscrito é pulado
+     * @param disconnectQueueDepth Profundidade da fila de saída a partir da qual a conexão do inscrito é derrubada
+     */
+    public Broadcaster(int slowQueueDepth, int disconnectQueueDepth) {
+        this.textSubscribers = new CopyOnWriteArrayList<>();
+        this.binarySubscribers = new CopyOnWriteArrayList<>();
+        this.slowQueueDepth = slowQueueDepth;
+        this.disconnectQueueDepth = disconnectQueueDepth;
+        this.skipped = new LongAdder();
+    }
+
+    /**
+     * Inscreve jogador para receber as transmissões, no protocolo negociado por ele.
+     *
+     * @param session Sessão do jogador
+     */
+    public void subscribe(PlayerSession session) {
+        subscribe(session.getConnection(), session.isBinary());
+    }
+
+    /**
+     * Inscreve socket para receber as transmissões.
+     *
+     * @param conn Socket do inscrito
+     * @param binary Indica se o inscrito usa o protocolo binário
+     */
+    public void subscribe(WebSocket conn, boolean binary) {
+        (binary ? binarySubscribers : textSubscribers).add(conn);
+    }
+
+    /**
+     * Cancela inscrição do jogador.
+     *
+     * @param session Sessão do jogador
+     */
+    public void unsubscribe(PlayerSession session) {
+        unsubscribe(session.getConnection(), session.isBinary());
+    }
+
+    /**
+     * Cancela inscrição do socket.
+     *
+     * @param conn Socket do inscrito
+     * @param binary Indica se o inscrito usa o protocolo binário
+     */
+    public void unsubscribe(WebSocket conn, boolean binary) {
+        (binary ? binarySubscribers : textSubscribers).remove(conn);
+    }
+
+    /**
+     * Fecha as conexões de todos os inscritos.
+     *
+     * @param code Código de fechamento
+     * @param reason Motivo do fechamento
+     */
+    public void closeAll(int code, String reason) {
+        for (WebSocket conn : textSubscribers) {
+            conn.close(code, reason);
+        }
+        for (WebSocket conn : binarySubscribers) {
+            conn.close(code, reason);
+        }
+    }
+
+    public boolean hasTextSubscribers() {
+        return !textSubscribers.isEmpty();
+    }
+
+    public boolean hasBinarySubscribers() {
+        return !binarySubscribers.isEmpty();
+    }
+
+    public long getSkipped() {
+        return skipped.sum();
+    }
+
+    /**
+     * Transmite um lote a todos os inscritos: o formato de texto aos inscritos de texto e o binário aos binários.
+     *
+     * @param batch Lote escrito nos formatos dos inscritos
+     * @return Quantidade de inscritos a que o lote foi enviado
+     */
+    public int publish(MessageBatch batch) {
+        if (batch.isEmpty()) return 0;
+        int sent = 0;
+        if (!textSubscribers.isEmpty()) sent += fanOut(batch.text(), null, textSubscribers);
+        if (!binarySubscribers.isEmpty()) sent += fanOut(null, batch.binary(), binarySubscribers);
+        return sent;
+    }
+
+    /**
+     * Envia a mesma mensagem a uma lista de inscritos. Os quadros são criados uma vez para cada draft distinto entre os
+     * inscritos (em geral um ou dois: com e sem permessage-deflate) e reaproveitados. A {@link DeflateExtension} comprime o
+     * quadro compartilhado no primeiro envio e os demais inscritos com o mesmo draft recebem os bytes já comprimidos.
+     */
+    private int fanOut(String text, ByteBuffer bytes, List<WebSocket> subscribers) {
+        int sent = 0;
+        Draft[] drafts = new Draft[MAX_ENCODINGS];
+        List<Framedata>[] encodings = newEncodings();
+        int encoded = 0;
+        for (WebSocket conn : subscribers) {
+            int depth = queueDepth(conn);
+            if (depth >= slowQueueDepth) {
+                skipped.increment();
+                // Fecha sem quadro de fechamento: ele ficaria atrás da fila que o cliente não lê
+                if (depth >= disconnectQueueDepth) conn.closeConnection(CLOSE_SLOW_READER, "Cliente não está lendo as mensagens.");
+                continue;
+            }
+            Draft draft = conn.getDraft();
+            if (draft == null) continue;
+            List<Framedata> frames = null;
+            for (int i = 0; i < encoded && frames == null; i++) {
+                if (draft.equals(drafts[i])) frames = encodings[i];
+            }
+            if (frames == null) {
+                frames = (text != null) ? draft.createFrames(text, false) : draft.createFrames(bytes.duplicate(), false);
+                // Com drafts demais, a última posição é reaproveitada
+                int slot = Math.min(encoded, MAX_ENCODINGS - 1);
+                drafts[slot] = draft;
+                encodings[slot] = frames;
+                if (encoded < MAX_ENCODINGS) encoded++;
+            }
+            try {
+                conn.sendFrame(frames);
+                sent++;
+            } catch (WebsocketNotConnectedException e) {
+                // Conexão fechou durante a transmissão; será retirada pelo onClose
+            }
+        }
+        return sent;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Framedata>[] newEncodings() {
+        return new List[MAX_ENCODINGS];
+    }
+
+    /**
+     * Verifica se o inscrito tem mais buffers pendentes na fila de saída do que o limite.
+     *
+     * @param conn Socket do inscrito
+     */
+    boolean isSlow(WebSocket conn) {
+        return queueDepth(conn) >= slowQueueDepth;
+    }
+
+    /**
+     * Quantidade de buffers pendentes na fila de saída da conexão; 0 se não há fila a consultar.
+     *
+     * @param conn Socket do inscrito
+     */
+    static int queueDepth(WebSocket conn) {
+        return (conn instanceof WebSocketImpl && conn.hasBufferedData()) ? ((WebSocketImpl) conn).outQueue.size() : 0;
+    }
+}
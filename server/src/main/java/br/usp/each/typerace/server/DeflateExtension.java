@@ -0,0 +1,94 @@
+package br.usp.each.typerace.server;
+
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.framing.DataFrame;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.framing.FramedataImpl1;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Extensão permessage-deflate com tamanho mínimo: só mensagens a partir de {@link #getThreshold()} bytes são comprimidas,
+ * de modo que as respostas curtas de cada palavra não pagam o custo do deflate. Registra em {@link ServerMetrics} os bytes
+ * antes e depois da compressão e o tempo gasto nela.
+ * <p>
+ * O servidor não mantém contexto entre mensagens (server_no_context_takeover): um quadro comprimido vale para qualquer
+ * conexão, e o {@link Broadcaster} o comprime uma vez só por transmissão. Quadros que já chegam com RSV1 (comprimidos
+ * pela conexão anterior da mesma transmissão) são enviados como estão.
+ */
+public class DeflateExtension extends PerMessageDeflateExtension {
+
+    /**
+     * Tamanho mínimo padrão (bytes) das mensagens comprimidas.
+     */
+    public static final int DEFAULT_THRESHOLD = 256;
+
+    private final int threshold;
+
+    private final ServerMetrics metrics;
+
+    /**
+     * Construtor.
+     *
+     * @param threshold Tamanho mínimo (bytes) das mensagens comprimidas
+     * @param metrics Métricas em que a compressão é registrada
+     */
+    public DeflateExtension(int threshold, ServerMetrics metrics) {
+        this.threshold = threshold;
+        this.metrics = metrics;
+        setServerNoContextTakeover(true);
+    }
+
+    /**
+     * Drafts aceitos pelo servidor com compressão: o RFC 6455 com esta extensão, ou sem extensão para os clientes que não
+     * a oferecem.
+     *
+     * @param threshold Tamanho mínimo (bytes) das mensagens comprimidas
+     * @param metrics Métricas em que a compressão é registrada
+     */
+    public static List<Draft> drafts(int threshold, ServerMetrics metrics) {
+        return Collections.singletonList(new Draft_6455(new DeflateExtension(threshold, metrics)));
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    @Override
+    public void encodeFrame(Framedata frame) {
+        if (!(frame instanceof DataFrame) || frame.isRSV1()) return;
+        ByteBuffer payload = frame.getPayloadData();
+        int length = payload.remaining();
+        if (length < threshold) {
+            metrics.framesUncompressed.increment();
+            return;
+        }
+        // A extensão comprime o array inteiro por trás do buffer; fatias (como MessageBatch.binary()) são copiadas antes
+        if (!payload.hasArray() || payload.arrayOffset() + payload.position() != 0 || payload.array().length != length) {
+            byte[] exact = new byte[length];
+            payload.duplicate().get(exact);
+            ((FramedataImpl1) frame).setPayload(ByteBuffer.wrap(exact));
+        }
+        long start = System.nanoTime();
+        super.encodeFrame(frame);
+        metrics.compressionNanos.add(System.nanoTime() - start);
+        metrics.framesCompressed.increment();
+        metrics.bytesBeforeCompression.add(length);
+        metrics.bytesAfterCompression.add(frame.getPayloadData().remaining());
+    }
+
+    @Override
+    public IExtension copyInstance() {
+        return new DeflateExtension(threshold, metrics);
+    }
+
+    @Override
+    public String toString() {
+        return "DeflateExtension(" + threshold + ")";
+    }
+}
@@ -0,0 +1,387 @@
+package br.usp.each.typerace.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+ * Histórico de partidas em um arquivo binário só de acréscimo. {@link #record(MatchRecord)} apenas enfileira a partida;
+ * uma thread de fundo junta as partidas pendentes, grava o lote com uma única escrita no {@link FileChannel} e um único
+ * force (commit em grupo). Cada registro leva tamanho e CRC32, e um final truncado por queda é descartado na abertura.
+ * <p>
+ * Um índice em memória guarda, por jogador, só as posições dos seus registros no arquivo (um long por partida), a posição
+ * do recorde e a velocidade das últimas partidas; as consultas leem apenas os registros pedidos, sem percorrer o arquivo,
+ * e a média de velocidade não lê o arquivo. O índice é reconstruído na abertura,
+ * com uma única leitura sequencial do arquivo.
+ */
+public class FileMatchHistory implements MatchHistory {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FileMatchHistory.class);
+
+    /**
+     * Versão do formato do registro, gravada no início de cada um.
+     */
+    static final byte FORMAT_VERSION = 1;
+
+    /**
+     * Tamanho do cabeçalho de cada registro: tamanho do conteúdo (int) e CRC32 do conteúdo (int).
+     */
+    static final int HEADER_SIZE = 8;
+
+    /**
+     * Tamanho máximo aceito para um registro; valores maiores indicam arquivo corrompido.
+     */
+    static final int MAX_RECORD_SIZE = 1 << 20;
+
+    /**
+     * Quantidade máxima de partidas gravadas em um lote.
+     */
+    static final int MAX_BATCH = 256;
+
+    /**
+     * Quantidade de partidas recentes cuja velocidade fica no índice de cada jogador.
+     */
+    static final int RECENT_SPEEDS = 16;
+
+    /**
+     * Marca de encerramento da fila de gravação.
+     */
+    private static final MatchRecord CLOSE = new MatchRecord("", 0, 0, 0, Collections.emptyList());
+
+    private final FileChannel channel;
+
+    private final BlockingQueue<MatchRecord> pending;
+
+    private final Map<String, PlayerIndex> index;
+
+    private final Thread writer;
+
+    /**
+     * Fim do arquivo; só é alterado pela thread de gravação depois da abertura.
+     */
+    private long end;
+
+    private ByteBuffer buffer;
+
+    private volatile boolean closed;
+
+    private FileMatchHistory(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.pending = new LinkedBlockingQueue<>();
+        this.index = new ConcurrentHashMap<>();
+        this.buffer = ByteBuffer.allocate(64 * 1024);
+        this.end = recover();
+        this.writer = new Thread(this::writeLoop, "typerace-historico");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Abre (ou cria) o arquivo de histórico e reconstrói o índice.
+     *
+     * @param file Caminho do arquivo
+     */
+    public static FileMatchHistory open(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        return new FileMatchHistory(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+    }
+
+    @Override
+    public void record(MatchRecord match) {
+        if (closed) {
+            LOG.warn("Histórico encerrado; partida da sala {} não foi gravada.", match.getRoomId());
+            return;
+        }
+        pending.add(match);
+    }
+
+    @Override
+    public List<MatchRecord> recentMatches(String player, int limit) {
+        PlayerIndex entry = index.get(player);
+        if (entry == null) return Collections.emptyList();
+        long[] offsets = entry.latest(limit);
+        List<MatchRecord> matches = new ArrayList<>(offsets.length);
+        for (long offset : offsets) {
+            matches.add(readAt(offset));
+        }
+        return matches;
+    }
+
+    @Override
+    public MatchRecord personalBest(String player) {
+        PlayerIndex entry = index.get(player);
+        long offset = (entry == null) ? -1 : entry.best();
+        return (offset < 0) ? null : readAt(offset);
+    }
+
+    @Override
+    public double averageWordsPerMinute(String player, int limit) {
+        PlayerIndex entry = index.get(player);
+        return (entry == null) ? 0 : entry.averageWordsPerMinute(limit);
+    }
+
+    /**
+     * Espera a gravação das partidas pendentes e fecha o arquivo.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        pending.add(CLOSE);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOG.warn("Erro ao fechar o histórico.", e);
+        }
+    }
+
+    /**
+     * Laço da thread de gravação: espera uma partida, junta as demais pendentes e grava o lote.
+     */
+    private void writeLoop() {
+        List<MatchRecord> batch = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(pending.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            pending.drainTo(batch, MAX_BATCH - 1);
+            if (batch.remove(CLOSE)) {
+                running = false;
+                pending.drainTo(batch);
+            }
+            if (!batch.isEmpty()) {
+                try {
+                    writeBatch(batch);
+                } catch (IOException e) {
+                    LOG.error("Erro ao gravar {} partidas no histórico.", batch.size(), e);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Grava um lote com uma escrita e um force, e só então o acrescenta ao índice.
+     */
+    private void writeBatch(List<MatchRecord> batch) throws IOException {
+        buffer.clear();
+        long[] offsets = new long[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            offsets[i] = end + buffer.position();
+            encode(batch.get(i));
+        }
+        buffer.flip();
+        long position = end;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        channel.force(false);
+        end = position;
+        for (int i = 0; i < batch.size(); i++) {
+            addToIndex(batch.get(i), offsets[i]);
+        }
+    }
+
+    /**
+     * Acrescenta um registro (cabeçalho e conteúdo) ao buffer de gravação, aumentando-o se necessário.
+     */
+    private void encode(MatchRecord match) {
+        byte[] room = match.getRoomId().getBytes(StandardCharsets.UTF_8);
+        List<byte[]> names = new ArrayList<>(match.getResults().size());
+        int size = 1 + 8 + 8 + 8 + 2 + room.length + 2;
+        for (MatchRecord.PlayerResult result : match.getResults()) {
+            byte[] name = result.getName().getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            size += 2 + name.length + 4 + 4;
+        }
+        if (buffer.remaining() < HEADER_SIZE + size) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + HEADER_SIZE + size));
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+        int start = buffer.position();
+        buffer.putInt(size).putInt(0);
+        buffer.put(FORMAT_VERSION)
+                .putLong(match.getFinishedAt())
+                .putLong(match.getSeed())
+                .putLong(match.getDurationMillis())
+                .putShort((short) room.length).put(room)
+                .putShort((short) names.size());
+        for (int i = 0; i < names.size(); i++) {
+            MatchRecord.PlayerResult result = match.getResults().get(i);
+            buffer.putShort((short) names.get(i).length).put(names.get(i))
+                    .putInt(result.getPoints())
+                    .putInt(result.getErrors());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), start + HEADER_SIZE, size);
+        buffer.putInt(start + 4, (int) crc.getValue());
+    }
+
+    /**
+     * Lê o conteúdo de um registro, validando tamanho e CRC.
+     *
+     * @param offset Posição do registro no arquivo
+     * @return O conteúdo, ou null se o registro está incompleto ou corrompido
+     */
+    private ByteBuffer readPayload(long offset, long fileSize) throws IOException {
+        if (offset + HEADER_SIZE > fileSize) return null;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, offset);
+        int size = header.getInt(0);
+        int checksum = header.getInt(4);
+        if (size <= 0 || size > MAX_RECORD_SIZE || offset + HEADER_SIZE + size > fileSize) return null;
+        ByteBuffer payload = ByteBuffer.allocate(size);
+        readFully(payload, offset + HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(payload.array(), 0, size);
+        if ((int) crc.getValue() != checksum) return null;
+        return payload;
+    }
+
+    private void readFully(ByteBuffer target, long position) throws IOException {
+        while (target.hasRemaining()) {
+            int read = channel.read(target, position + target.position());
+            if (read < 0) throw new IOException("Fim inesperado do histórico");
+        }
+        target.flip();
+    }
+
+    private MatchRecord readAt(long offset) {
+        try {
+            ByteBuffer payload = readPayload(offset, Long.MAX_VALUE);
+            if (payload == null) throw new IOException("Registro corrompido na posição " + offset);
+            return decode(payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static MatchRecord decode(ByteBuffer payload) throws IOException {
+        if (payload.get() != FORMAT_VERSION) throw new IOException("Versão de registro desconhecida");
+        long finishedAt = payload.getLong();
+        long seed = payload.getLong();
+        long duration = payload.getLong();
+        String room = readString(payload);
+        int count = payload.getShort() & 0xFFFF;
+        List<MatchRecord.PlayerResult> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(new MatchRecord.PlayerResult(readString(payload), payload.getInt(), payload.getInt()));
+        }
+        return new MatchRecord(room, seed, finishedAt, duration, results);
+    }
+
+    private static String readString(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.getShort() & 0xFFFF];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Percorre o arquivo uma vez, reconstruindo o índice, e descarta um final incompleto ou corrompido.
+     *
+     * @return Posição do fim dos registros válidos
+     */
+    private long recover() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer payload;
+        while ((payload = readPayload(position, size)) != null) {
+            addToIndex(decode(payload), position);
+            position += HEADER_SIZE + payload.capacity();
+        }
+        if (position < size) {
+            LOG.warn("Histórico com final incompleto; descartando {} bytes.", size - position);
+            channel.truncate(position);
+        }
+        return position;
+    }
+
+    private void addToIndex(MatchRecord match, long offset) {
+        for (MatchRecord.PlayerResult result : match.getResults()) {
+            index.computeIfAbsent(result.getName(), k -> new PlayerIndex()).add(offset, match.wordsPerMinute(result.getName()));
+        }
+    }
+
+    /**
+     * Entrada do índice de um jogador: posições das suas partidas, em ordem de gravação, a do recorde e a velocidade das
+     * últimas {@link #RECENT_SPEEDS} partidas, em um buffer circular.
+     */
+    private static final class PlayerIndex {
+
+        private long[] offsets = new long[4];
+
+        private int count;
+
+        private long bestOffset = -1;
+
+        private double bestWordsPerMinute;
+
+        private final double[] recentWordsPerMinute = new double[RECENT_SPEEDS];
+
+        synchronized void add(long offset, double wordsPerMinute) {
+            recentWordsPerMinute[count % RECENT_SPEEDS] = wordsPerMinute;
+            if (count == offsets.length) offsets = Arrays.copyOf(offsets, count * 2);
+            offsets[count++] = offset;
+            if (wordsPerMinute > bestWordsPerMinute) {
+                bestWordsPerMinute = wordsPerMinute;
+                bestOffset = offset;
+            }
+        }
+
+        /**
+         * Posições das últimas partidas, da mais recente para a mais antiga.
+         */
+        synchronized long[] latest(int limit) {
+            long[] result = new long[Math.min(limit, count)];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = offsets[count - 1 - i];
+            }
+            return result;
+        }
+
+        synchronized long best() {
+            return bestOffset;
+        }
+
+        /**
+         * Média de velocidade das últimas partidas, até {@link #RECENT_SPEEDS}.
+         */
+        synchronized double averageWordsPerMinute(int limit) {
+            int n = Math.min(Math.min(limit, RECENT_SPEEDS), count);
+            if (n <= 0) return 0;
+            double sum = 0;
+            for (int i = 1; i <= n; i++) {
+                sum += recentWordsPerMinute[(count - i) % RECENT_SPEEDS];
+            }
+            return sum / n;
+        }
+    }
+}
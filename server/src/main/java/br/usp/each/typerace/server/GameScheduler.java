@@ -0,0 +1,238 @@
+package br.usp.each.typerace.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Agendador das tarefas do servidor. Mantém um número fixo de "pistas" (executores que rodam uma tarefa por vez);
+ * cada sala é associada a uma pista pelo seu ID, de forma que toda a lógica de uma sala roda em sequência,
+ * sem travas, e salas diferentes se distribuem entre os núcleos. Tarefas temporizadas (contagem regressiva,
+ * atraso das boas-vindas) rodam na pista da sala, e nenhum callback do WebSocket precisa dormir.
+ * <p>
+ * Há dois modos. No padrão, cada pista é uma thread de plataforma, uma por núcleo. No modo de threads virtuais
+ * ({@link #virtualThreads()}, Java 21 ou maior), as pistas são muitas e não têm thread própria: cada rajada de tarefas
+ * de uma pista roda numa thread virtual nova, e um temporizador único entrega as tarefas agendadas à pista. Assim, uma
+ * tarefa que bloqueia (E/S, persistência) só atrasa as salas da sua pista, e não as de um núcleo inteiro.
+ */
+public class GameScheduler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GameScheduler.class);
+
+    /**
+     * Quantidade padrão de pistas no modo de threads virtuais. Pistas ociosas custam apenas uma fila vazia.
+     */
+    public static final int DEFAULT_VIRTUAL_LANES = 4096;
+
+    /**
+     * Fábrica de threads virtuais, obtida por reflexão (o projeto compila para Java 11); null se a JVM não as oferece.
+     */
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY = virtualThreadFactory();
+
+    private final Executor[] lanes;
+
+    /**
+     * Temporizador do modo de threads virtuais; null no modo padrão, em que cada pista agenda as próprias tarefas.
+     */
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Construtor. Cria uma pista por núcleo disponível.
+     */
+    public GameScheduler() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Construtor.
+     *
+     * @param laneCount Quantidade de pistas (threads daemon) do agendador
+     */
+    public GameScheduler(int laneCount) {
+        this.lanes = new Executor[Math.max(1, laneCount)];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new PlatformLane(daemonThreads("typerace-lane-" + i));
+        }
+        this.timer = null;
+    }
+
+    private GameScheduler(Executor[] lanes, ScheduledExecutorService timer) {
+        this.lanes = lanes;
+        this.timer = timer;
+    }
+
+    /**
+     * Cria agendador no modo de threads virtuais, com {@link #DEFAULT_VIRTUAL_LANES} pistas.
+     *
+     * @throws UnsupportedOperationException se a JVM não oferece threads virtuais
+     */
+    public static GameScheduler virtualThreads() {
+        return virtualThreads(DEFAULT_VIRTUAL_LANES);
+    }
+
+    /**
+     * Cria agendador no modo de threads virtuais.
+     *
+     * @param laneCount Quantidade de pistas
+     * @throws UnsupportedOperationException se a JVM não oferece threads virtuais
+     */
+    public static GameScheduler virtualThreads(int laneCount) {
+        if (VIRTUAL_THREAD_FACTORY == null) throw new UnsupportedOperationException("Threads virtuais exigem Java 21 ou maior.");
+        Executor threads = task -> VIRTUAL_THREAD_FACTORY.newThread(task).start();
+        Executor[] lanes = new Executor[Math.max(1, laneCount)];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new SerialExecutor(threads);
+        }
+        return new GameScheduler(lanes, Executors.newSingleThreadScheduledExecutor(daemonThreads("typerace-timer")));
+    }
+
+    /**
+     * Indica se a JVM atual oferece threads virtuais.
+     */
+    public static boolean virtualThreadsAvailable() {
+        return VIRTUAL_THREAD_FACTORY != null;
+    }
+
+    /**
+     * Indica se o agendador está no modo de threads virtuais.
+     */
+    public boolean isVirtual() {
+        return timer != null;
+    }
+
+    /**
+     * Devolve a pista associada a uma chave (ID da sala). A mesma chave sempre cai na mesma pista.
+     *
+     * @param key ID da sala
+     */
+    public Executor lane(String key) {
+        return lanes[Math.floorMod(key.hashCode(), lanes.length)];
+    }
+
+    /**
+     * Executa tarefa na pista da chave assim que possível.
+     *
+     * @param key ID da sala
+     * @param task Tarefa a ser executada
+     */
+    public void execute(String key, Runnable task) {
+        lane(key).execute(task);
+    }
+
+    /**
+     * Agenda execução única de uma tarefa na pista da chave.
+     *
+     * @param key ID da sala
+     * @param task Tarefa a ser executada
+     * @param delay Atraso até a execução
+     * @param unit Unidade do atraso
+     * @return Future que permite cancelar a tarefa
+     */
+    public ScheduledFuture<?> schedule(String key, Runnable task, long delay, TimeUnit unit) {
+        Executor lane = lane(key);
+        if (timer == null) return ((ScheduledExecutorService) lane).schedule(task, delay, unit);
+        return timer.schedule(() -> lane.execute(task), delay, unit);
+    }
+
+    /**
+     * Agenda uma contagem regressiva na pista da chave. onTick é chamado com from, from - 1, ..., 1, um valor por período
+     * (o primeiro após um período), e onFinish é chamado um período depois do último tick.
+     *
+     * @param key ID da sala
+     * @param from Valor inicial da contagem
+     * @param period Intervalo entre ticks
+     * @param unit Unidade do intervalo
+     * @param onTick Chamado a cada tick com o valor atual
+     * @param onFinish Chamado ao fim da contagem
+     */
+    public void countdown(String key, int from, long period, TimeUnit unit, IntConsumer onTick, Runnable onFinish) {
+        for (int n = from; n >= 1; n--) {
+            final int value = n;
+            schedule(key, () -> onTick.accept(value), (from - n + 1) * period, unit);
+        }
+        schedule(key, onFinish, (from + 1) * period, unit);
+    }
+
+    /**
+     * Encerra todas as pistas, descartando tarefas pendentes.
+     */
+    public void shutdown() {
+        if (timer != null) timer.shutdownNow();
+        for (Executor lane : lanes) {
+            if (lane instanceof ScheduledExecutorService) ((ScheduledExecutorService) lane).shutdownNow();
+            else ((SerialExecutor) lane).shutdown();
+        }
+    }
+
+    /**
+     * Pista do modo padrão. O executor agendado guarda a exceção de uma tarefa no Future que ninguém consulta; aqui ela é
+     * registrada no log, como no {@link SerialExecutor} do modo de threads virtuais, e a pista segue para a próxima tarefa.
+     */
+    private static final class PlatformLane extends ScheduledThreadPoolExecutor {
+
+        PlatformLane(ThreadFactory threads) {
+            super(1, threads);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            // execute() também passa por aqui, com atraso zero
+            return super.schedule(() -> {
+                try {
+                    command.run();
+                } catch (RuntimeException e) {
+                    LOG.error("Erro em tarefa de sala.", e);
+                }
+            }, delay, unit);
+        }
+    }
+
+    /**
+     * Espera, depois de {@link #shutdown()}, o fim das tarefas que as pistas estiverem rodando.
+     *
+     * @param timeout Tempo máximo de espera, somando todas as pistas
+     * @param unit Unidade do tempo
+     * @return false se o tempo acabou antes
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Executor lane : lanes) {
+            long remaining = deadline - System.nanoTime();
+            boolean terminated = (lane instanceof ScheduledExecutorService)
+                    ? ((ScheduledExecutorService) lane).awaitTermination(remaining, TimeUnit.NANOSECONDS)
+                    : ((SerialExecutor) lane).awaitTermination(remaining, TimeUnit.NANOSECONDS);
+            if (!terminated) return false;
+        }
+        return true;
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * Obtém por reflexão Thread.ofVirtual().name("typerace-sala-", 0).factory(), disponível a partir do Java 21.
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "typerace-sala-", 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package br.usp.each.typerace.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Banco de palavras lido de uma lista UTF-8 com uma palavra por linha (linhas vazias ou iniciadas por '#' são ignoradas).
+ * O arquivo é mapeado em memória e apenas o início de cada linha é indexado, em um int[]; as palavras só são decodificadas
+ * quando pedidas. Assim, o tempo de carga e o uso de heap crescem pouco com o tamanho do dicionário.
+ */
+public class MappedWordBank implements WordBank {
+
+    /**
+     * Dicionário embutido no servidor, usado quando nenhum arquivo é informado.
+     */
+    public static final String DEFAULT_RESOURCE = "/palavras/pt-br.txt";
+
+    private final ByteBuffer data;
+
+    /**
+     * Posição inicial de cada palavra em data.
+     */
+    private final int[] starts;
+
+    private final int size;
+
+    /**
+     * Construtor.
+     *
+     * @param data Conteúdo da lista de palavras; não é copiado
+     */
+    MappedWordBank(ByteBuffer data) {
+        this.data = data;
+        int[] index = new int[1024];
+        int count = 0;
+        int limit = data.limit();
+        int pos = hasBom(data) ? 3 : 0;
+        while (pos < limit) {
+            int end = lineEnd(pos);
+            if (end > pos && data.get(pos) != '#') {
+                if (count == index.length) index = Arrays.copyOf(index, count * 2);
+                index[count++] = pos;
+            }
+            while (end < limit && data.get(end) != '\n') end++;
+            pos = end + 1;
+        }
+        this.starts = index;
+        this.size = count;
+    }
+
+    /**
+     * Mapeia em memória um arquivo de palavras.
+     *
+     * @param file Caminho do arquivo (UTF-8, uma palavra por linha)
+     * @throws IOException Caso o arquivo não possa ser lido ou passe de 2 GB
+     */
+    public static MappedWordBank open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("Arquivo de palavras maior que 2 GB: " + file);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedWordBank(mapped);
+        }
+    }
+
+    /**
+     * Carrega o dicionário embutido no servidor.
+     */
+    public static MappedWordBank fromDefaultResource() {
+        try (InputStream in = MappedWordBank.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+            if (in == null) throw new IOException("Recurso " + DEFAULT_RESOURCE + " não encontrado");
+            return new MappedWordBank(ByteBuffer.wrap(in.readAllBytes()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Decodifica a palavra de um índice. Usa apenas leituras absolutas, podendo ser chamada por várias threads.
+     *
+     * @param index Índice da palavra, de 0 a {@link #size()} - 1
+     */
+    @Override
+    public String word(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Índice " + index + " fora do banco de " + size + " palavras");
+        int start = starts[index];
+        int end = lineEnd(start);
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = data.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean hasBom(ByteBuffer data) {
+        return data.limit() >= 3 && data.get(0) == (byte) 0xEF && data.get(1) == (byte) 0xBB && data.get(2) == (byte) 0xBF;
+    }
+
+    /**
+     * Devolve a posição logo após o último caractere da linha que começa em start, desconsiderando '\r'.
+     */
+    private int lineEnd(int start) {
+        int limit = data.limit();
+        int end = start;
+        while (end < limit && data.get(end) != '\n') end++;
+        if (end > start && data.get(end - 1) == '\r') end--;
+        return end;
+    }
+}
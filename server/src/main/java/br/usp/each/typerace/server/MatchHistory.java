@@ -0,0 +1,75 @@
+package br.usp.each.typerace.server;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Histórico das partidas encerradas. Gravar não pode bloquear quem chama (a pista da sala); as consultas por jogador
+ * devem ser baratas, sem percorrer o histórico inteiro.
+ */
+public interface MatchHistory {
+
+    /**
+     * Histórico desligado: descarta as partidas e não tem registros.
+     */
+    MatchHistory DISABLED = new MatchHistory() {
+        @Override
+        public void record(MatchRecord match) {
+        }
+
+        @Override
+        public List<MatchRecord> recentMatches(String player, int limit) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public MatchRecord personalBest(String player) {
+            return null;
+        }
+
+        @Override
+        public double averageWordsPerMinute(String player, int limit) {
+            return 0;
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    /**
+     * Registra uma partida encerrada.
+     *
+     * @param match Resultado da partida
+     */
+    void record(MatchRecord match);
+
+    /**
+     * Devolve as últimas partidas do jogador, da mais recente para a mais antiga.
+     *
+     * @param player ID do jogador
+     * @param limit Quantidade máxima de partidas
+     */
+    List<MatchRecord> recentMatches(String player, int limit);
+
+    /**
+     * Devolve a partida em que o jogador fez mais palavras corretas por minuto, ou null se ele não tem partidas.
+     *
+     * @param player ID do jogador
+     */
+    MatchRecord personalBest(String player);
+
+    /**
+     * Devolve a média de palavras corretas por minuto das últimas partidas do jogador, ou 0 se ele não tem partidas.
+     * Usada na fila de partidas a cada /pronto, por isso não pode ler o arquivo.
+     *
+     * @param player ID do jogador
+     * @param limit Quantidade máxima de partidas na média
+     */
+    double averageWordsPerMinute(String player, int limit);
+
+    /**
+     * Grava o que estiver pendente e libera os recursos.
+     */
+    void close();
+}
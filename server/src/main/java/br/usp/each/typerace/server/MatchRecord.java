@@ -0,0 +1,125 @@
+package br.usp.each.typerace.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado de uma partida encerrada, como gravado no histórico: sala, semente das palavras, duração e o placar final
+ * (do primeiro ao último colocado).
+ */
+public final class MatchRecord {
+
+    /**
+     * Resultado de um jogador na partida.
+     */
+    public static final class PlayerResult {
+
+        private final String name;
+
+        private final int points;
+
+        private final int errors;
+
+        public PlayerResult(String name, int points, int errors) {
+            this.name = name;
+            this.points = points;
+            this.errors = errors;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getPoints() {
+            return points;
+        }
+
+        public int getErrors() {
+            return errors;
+        }
+    }
+
+    private final String roomId;
+
+    private final long seed;
+
+    /**
+     * Instante de encerramento (ms desde a época).
+     */
+    private final long finishedAt;
+
+    private final long durationMillis;
+
+    private final List<PlayerResult> results;
+
+    /**
+     * Construtor.
+     *
+     * @param roomId ID da sala
+     * @param seed Semente da sequência de palavras da partida
+     * @param finishedAt Instante de encerramento (ms desde a época)
+     * @param durationMillis Duração da partida (ms)
+     * @param results Placar final, do primeiro ao último colocado
+     */
+    public MatchRecord(String roomId, long seed, long finishedAt, long durationMillis, List<PlayerResult> results) {
+        this.roomId = roomId;
+        this.seed = seed;
+        this.finishedAt = finishedAt;
+        this.durationMillis = durationMillis;
+        this.results = Collections.unmodifiableList(new ArrayList<>(results));
+    }
+
+    public String getRoomId() {
+        return roomId;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public List<PlayerResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Colocação do jogador na partida (a partir de 1), ou 0 se ele não participou.
+     *
+     * @param name ID do jogador
+     */
+    public int rankOf(String name) {
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i).getName().equals(name)) return i + 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Resultado do jogador na partida, ou null se ele não participou.
+     *
+     * @param name ID do jogador
+     */
+    public PlayerResult resultOf(String name) {
+        int rank = rankOf(name);
+        return (rank == 0) ? null : results.get(rank - 1);
+    }
+
+    /**
+     * Palavras corretas por minuto do jogador na partida, usadas como critério de recorde pessoal.
+     *
+     * @param name ID do jogador
+     */
+    public double wordsPerMinute(String name) {
+        PlayerResult result = resultOf(name);
+        if (result == null || durationMillis <= 0) return 0;
+        return result.getPoints() * 60000.0 / durationMillis;
+    }
+}
@@ -0,0 +1,200 @@
+package br.usp.each.typerace.server;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fila de partidas automáticas da sala {@link #LOBBY_ROOM}. Os jogadores prontos entram em uma fila por nível de habilidade
+ * (faixas de palavras por minuto do histórico) e são agrupados em partidas de {@link #getMatchSize()} jogadores; quem espera
+ * mais que a espera máxima é agrupado com os jogadores das faixas vizinhas, desde que haja pelo menos dois.
+ * <p>
+ * Entrar e sair da fila são O(1): cada faixa é uma fila em ordem de chegada, e a saída só marca a entrada como cancelada,
+ * descartada quando chega à frente. Não é thread-safe; só é usada na pista da sala de espera.
+ */
+public class Matchmaker {
+
+    /**
+     * Sala de espera em que /pronto coloca o jogador na fila de partidas automáticas.
+     */
+    public static final String LOBBY_ROOM = "fila";
+
+    /**
+     * Prefixo do ID das salas criadas para as partidas automáticas.
+     */
+    public static final String MATCH_ROOM_PREFIX = "partida-";
+
+    public static final int DEFAULT_MATCH_SIZE = 4;
+
+    public static final int DEFAULT_MAX_WAIT_SECONDS = 10;
+
+    /**
+     * Quantidade de faixas de habilidade.
+     */
+    static final int TIERS = 8;
+
+    /**
+     * Largura de cada faixa, em palavras corretas por minuto.
+     */
+    static final double TIER_WIDTH_WPM = 10;
+
+    /**
+     * Entrada da fila: jogador, faixa e instante de chegada.
+     */
+    private static final class Entry {
+
+        final PlayerSession session;
+
+        final int tier;
+
+        final long enqueuedAt;
+
+        boolean cancelled;
+
+        Entry(PlayerSession session, int tier, long enqueuedAt) {
+            this.session = session;
+            this.tier = tier;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private final int matchSize;
+
+    private final long maxWaitNanos;
+
+    private final ArrayDeque<Entry>[] tiers;
+
+    /**
+     * Jogadores ainda na fila (sem contar as entradas canceladas) de cada faixa.
+     */
+    private final int[] waiting;
+
+    private final Map<PlayerSession, Entry> entries;
+
+    /**
+     * Construtor.
+     *
+     * @param matchSize Quantidade de jogadores por partida
+     * @param maxWaitSeconds Espera máxima (s) antes de completar a partida com as faixas vizinhas ou com menos jogadores
+     */
+    @SuppressWarnings("unchecked")
+    public Matchmaker(int matchSize, int maxWaitSeconds) {
+        this.matchSize = Math.max(2, matchSize);
+        this.maxWaitNanos = TimeUnit.SECONDS.toNanos(maxWaitSeconds);
+        this.tiers = new ArrayDeque[TIERS];
+        for (int i = 0; i < TIERS; i++) {
+            tiers[i] = new ArrayDeque<>();
+        }
+        this.waiting = new int[TIERS];
+        this.entries = new HashMap<>();
+    }
+
+    /**
+     * Faixa de habilidade correspondente a uma média de palavras corretas por minuto.
+     *
+     * @param wordsPerMinute Média do jogador; 0 para jogadores sem histórico
+     */
+    static int tierOf(double wordsPerMinute) {
+        return (int) Math.min(TIERS - 1, Math.max(0, wordsPerMinute / TIER_WIDTH_WPM));
+    }
+
+    /**
+     * Coloca jogador na fila.
+     *
+     * @param session Sessão do jogador
+     * @param tier Faixa de habilidade do jogador ({@link #tierOf(double)})
+     * @param now Instante atual (System.nanoTime)
+     * @return false se o jogador já estava na fila
+     */
+    public boolean enqueue(PlayerSession session, int tier, long now) {
+        if (entries.containsKey(session)) return false;
+        Entry entry = new Entry(session, tier, now);
+        entries.put(session, entry);
+        tiers[tier].addLast(entry);
+        waiting[tier]++;
+        return true;
+    }
+
+    /**
+     * Retira jogador da fila.
+     *
+     * @param session Sessão do jogador
+     * @return false se o jogador não estava na fila
+     */
+    public boolean remove(PlayerSession session) {
+        Entry entry = entries.remove(session);
+        if (entry == null) return false;
+        entry.cancelled = true;
+        waiting[entry.tier]--;
+        return true;
+    }
+
+    public boolean contains(PlayerSession session) {
+        return entries.containsKey(session);
+    }
+
+    /**
+     * Quantidade de jogadores na fila.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    public int getMatchSize() {
+        return matchSize;
+    }
+
+    /**
+     * Forma a próxima partida, se houver: uma faixa com jogadores suficientes ou, se o jogador mais antigo da fila já esperou
+     * o máximo, ele e os mais antigos das faixas mais próximas da sua. Os jogadores agrupados saem da fila.
+     *
+     * @param now Instante atual (System.nanoTime)
+     * @return Jogadores da partida, ou null se nenhuma partida pode ser formada agora
+     */
+    public List<PlayerSession> nextGroup(long now) {
+        Entry oldest = null;
+        for (int t = 0; t < TIERS; t++) {
+            if (waiting[t] >= matchSize) return take(t, matchSize, new ArrayList<>(matchSize));
+            Entry head = head(t);
+            if (head != null && (oldest == null || head.enqueuedAt - oldest.enqueuedAt < 0)) oldest = head;
+        }
+        if (oldest == null || entries.size() < 2 || now - oldest.enqueuedAt < maxWaitNanos) return null;
+        List<PlayerSession> group = new ArrayList<>(matchSize);
+        take(oldest.tier, matchSize, group);
+        for (int distance = 1; distance < TIERS && group.size() < matchSize; distance++) {
+            if (oldest.tier - distance >= 0) take(oldest.tier - distance, matchSize - group.size(), group);
+            if (oldest.tier + distance < TIERS) take(oldest.tier + distance, matchSize - group.size(), group);
+        }
+        return group;
+    }
+
+    /**
+     * Primeira entrada válida da faixa, descartando as canceladas.
+     */
+    private Entry head(int tier) {
+        ArrayDeque<Entry> queue = tiers[tier];
+        Entry head;
+        while ((head = queue.peekFirst()) != null && head.cancelled) {
+            queue.pollFirst();
+        }
+        return head;
+    }
+
+    /**
+     * Retira até a quantidade pedida de jogadores da faixa, em ordem de chegada, acrescentando-os ao grupo.
+     */
+    private List<PlayerSession> take(int tier, int count, List<PlayerSession> group) {
+        for (int i = 0; i < count; i++) {
+            Entry entry = head(tier);
+            if (entry == null) break;
+            tiers[tier].pollFirst();
+            entries.remove(entry.session);
+            waiting[tier]--;
+            group.add(entry.session);
+        }
+        return group;
+    }
+}
@@ -0,0 +1,330 @@
+package br.usp.each.typerace.server;
+
+import org.java_websocket.WebSocket;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Agrupa as mensagens de um mesmo evento (resposta a um jogador, placar, regras) em um único quadro WebSocket,
+ * em vez de um quadro por linha. Cada mensagem é registrada de forma tipada e escrita no formato de texto
+ * (linhas separadas por {@link #SEPARATOR}) e/ou no formato binário de {@link Protocol}, conforme os destinatários.
+ */
+public class MessageBatch {
+
+    /**
+     * Separador das linhas dentro de um quadro de texto.
+     */
+    public static final char SEPARATOR = '\n';
+
+    /**
+     * Quadro no formato de texto; null se o lote não será enviado a clientes de texto.
+     */
+    private final StringBuilder text;
+
+    /**
+     * Quadro no formato binário (começando pelo byte de versão); null se o lote não será enviado a clientes binários.
+     */
+    private byte[] bytes;
+
+    private int size;
+
+    /**
+     * Construtor. Escreve o lote nos dois formatos, para transmissão a destinatários de ambos os protocolos.
+     */
+    public MessageBatch() {
+        this(true, true);
+    }
+
+    /**
+     * Construtor.
+     *
+     * @param renderText Indica se o lote deve ser escrito no formato de texto
+     * @param renderBinary Indica se o lote deve ser escrito no formato binário
+     */
+    MessageBatch(boolean renderText, boolean renderBinary) {
+        this.text = renderText ? new StringBuilder(128) : null;
+        if (renderBinary) {
+            this.bytes = new byte[64];
+            this.bytes[0] = Protocol.VERSION;
+            this.size = 1;
+        }
+    }
+
+    /**
+     * Cria lote escrito apenas no protocolo negociado pelo jogador.
+     *
+     * @param session Sessão do destinatário
+     */
+    public static MessageBatch forSession(PlayerSession session) {
+        return new MessageBatch(!session.isBinary(), session.isBinary());
+    }
+
+    /**
+     * Acrescenta uma linha de texto livre ao lote.
+     *
+     * @param line Linha de texto, sem quebras de linha
+     * @return O próprio lote, para encadeamento
+     */
+    public MessageBatch line(String line) {
+        if (text != null) appendLine(line);
+        if (bytes != null) writeByte(Protocol.TEXT).writeString(line);
+        return this;
+    }
+
+    /**
+     * Acrescenta a palavra que o jogador deve digitar.
+     *
+     * @param number Número da palavra na partida, a partir de 1
+     * @param word Palavra
+     * @return O próprio lote, para encadeamento
+     */
+    public MessageBatch word(int number, String word) {
+        if (text != null) appendLine("-------").appendLine("Palavra " + number + ":").appendLine(word);
+        if (bytes != null) writeByte(Protocol.WORD).writeInt(number).writeString(word);
+        return this;
+    }
+
+    /**
+     * Acrescenta o resultado de uma resposta do jogador.
+     *
+     * @param correct Indica se a resposta estava correta
+     * @param points Pontos do jogador após a resposta
+     * @param errors Erros do jogador após a resposta
+     * @return O próprio lote, para encadeamento
+     */
+    public MessageBatch answerResult(boolean correct, int points, int errors) {
+        if (text != null) {
+            if (correct) appendLine(":correct:" + points).appendLine("Acertou!");
+            else appendLine(":errors:" + errors).appendLine("Errou.");
+        }
+        if (bytes != null) writeByte(Protocol.ANSWER_RESULT).writeByte(correct ? (byte) 1 : 0).writeInt(points).writeInt(errors);
+        return this;
+    }
+
+    /**
+     * Acrescenta a pontuação atual de um jogador.
+     *
+     * @param name ID do jogador
+     * @param points Pontos do jogador
+     * @return O próprio lote, para encadeamento
+     */
+    public MessageBatch scoreUpdate(String name, int points) {
+        if (text != null) appendLine(name + ": " + points + " pontos");
+        if (bytes != null) writeByte(Protocol.SCORE_UPDATE).writeString(name).writeInt(points);
+        return this;
+    }
+
+    /**
+     * Acrescenta um tick da contagem regressiva.
+     *
+     * @param seconds Segundos restantes para o início da partida
+     * @return O próprio lote, para encadeamento
+     */
+    public MessageBatch countdown(int seconds) {
+        if (text != null) appendLine(String.valueOf(seconds));
+        if (bytes != null) writeByte(Protocol.COUNTDOWN).writeByte((byte) seconds);
+        return this;
+    }
+
+    /**
+     * Acrescenta uma linha do placar.
+     *
+     * @param rank Posição do jogador, a partir de 1
+     * @param name ID do jogador
+     * @param points Pontos do jogador
+     * @param errors Erros do jogador
+     * @return O próprio lote, para encadeamento
+     */
+    public MessageBatch leaderboardEntry(int rank, String name, int points, int errors) {
+        if (text != null) appendLine(rank + ": " + name + " (" + points + " pontos, " + errors + " erros)");
+        if (bytes != null) writeByte(Protocol.LEADERBOARD).writeInt(rank).writeString(name).writeInt(points).writeInt(errors);
+        return this;
+    }
+
+    /**
+     * Acrescenta o token de retomada da sessão do jogador.
+     *
+     * @param token Token a ser enviado pelo cliente ao reconectar
+     * @return O próprio lote, para encadeamento
+     */
+    public MessageBatch session(String token) {
+        if (text != null) appendLine(":sessao:" + token);
+        if (bytes != null) writeByte(Protocol.SESSION).writeString(token);
+        return this;
+    }
+
+    /**
+     * Acrescenta o estado da partida restaurado após a reconexão do jogador.
+     *
+     * @param points Pontos do jogador
+     * @param errors Erros do jogador
+     * @return O próprio lote, para encadeamento
+     */
+    public MessageBatch resumed(int points, int errors) {
+        if (text != null) appendLine(":correct:" + points).appendLine(":errors:" + errors);
+        if (bytes != null) writeByte(Protocol.RESUMED).writeInt(points).writeInt(errors);
+        return this;
+    }
+
+    /**
+     * Acrescenta as estatísticas de digitação do jogador na partida encerrada. No formato de texto, a linha ":informStats:"
+     * pede ao cliente que as exiba.
+     *
+     * @param points Pontos do jogador
+     * @param errors Erros do jogador
+     * @param stats Estatísticas de digitação do jogador
+     * @return O próprio lote, para encadeamento
+     */
+    public MessageBatch typingStats(int points, int errors, TypingStats stats) {
+        int wpmTenths = (int) Math.round(stats.wordsPerMinute() * 10);
+        int accuracyTenths = (int) Math.round(stats.accuracy() * 10);
+        long p50 = stats.percentileMillis(50);
+        long p90 = stats.percentileMillis(90);
+        long p99 = stats.percentileMillis(99);
+        if (text != null) {
+            appendLine(":correct:" + points).appendLine(":errors:" + errors)
+                    .appendLine(":stats:" + wpmTenths + "," + accuracyTenths + "," + p50 + "," + p90 + "," + p99)
+                    .appendLine(":informStats:");
+        }
+        if (bytes != null) {
+            writeByte(Protocol.TYPING_STATS).writeInt(points).writeInt(errors).writeInt(wpmTenths).writeInt(accuracyTenths)
+                    .writeInt((int) p50).writeInt((int) p90).writeInt((int) p99);
+        }
+        return this;
+    }
+
+    /**
+     * Acrescenta o cabeçalho de uma transmissão da corrida aos espectadores, seguido dos jogadores ({@link #racePlayer}) e
+     * das saídas ({@link #raceRemoved}).
+     *
+     * @param full Indica se é o estado completo (true) ou só as diferenças desde a última transmissão
+     * @param playing Indica se há partida em andamento
+     * @return O próprio lote, para encadeamento
+     */
+    public MessageBatch raceHeader(boolean full, boolean playing) {
+        if (text != null) appendLine((full ? "Corrida, estado completo" : "Corrida, atualização") + (playing ? " (partida em andamento):" : " (aguardando partida):"));
+        if (bytes != null) writeByte(Protocol.RACE).writeByte(full ? (byte) 1 : 0).writeByte(playing ? (byte) 1 : 0);
+        return this;
+    }
+
+    /**
+     * Acrescenta a posição de um jogador na corrida.
+     *
+     * @param name ID do jogador
+     * @param word Número da palavra atual do jogador, a partir de 1; 0 fora de partida
+     * @param points Pontos do jogador
+     * @return O próprio lote, para encadeamento
+     */
+    public MessageBatch racePlayer(String name, int word, int points) {
+        if (text != null) appendLine(name + ": palavra " + word + ", " + points + " pontos");
+        if (bytes != null) writeByte(Protocol.RACE_PLAYER).writeString(name).writeInt(word).writeInt(points);
+        return this;
+    }
+
+    /**
+     * Acrescenta a saída de um jogador da corrida.
+     *
+     * @param name ID do jogador
+     * @return O próprio lote, para encadeamento
+     */
+    public MessageBatch raceRemoved(String name) {
+        if (text != null) appendLine(name + " saiu da sala.");
+        if (bytes != null) writeByte(Protocol.RACE_REMOVED).writeString(name);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return (text != null) ? text.length() == 0 : size <= 1;
+    }
+
+    /**
+     * Devolve o quadro no formato de texto (linhas separadas por {@link #SEPARATOR}).
+     */
+    public String text() {
+        return text.toString();
+    }
+
+    /**
+     * Devolve o quadro no formato binário, pronto para envio.
+     */
+    public ByteBuffer binary() {
+        return ByteBuffer.wrap(bytes, 0, size);
+    }
+
+    /**
+     * Envia o lote como um único quadro, no protocolo negociado pelo jogador.
+     *
+     * @param session Sessão de destino
+     */
+    public void sendTo(PlayerSession session) {
+        if (isEmpty()) return;
+        if (session.isBinary()) session.getConnection().send(binary());
+        else session.getConnection().send(text());
+    }
+
+    /**
+     * Envia o lote como um único quadro, no protocolo informado.
+     *
+     * @param conn Socket de destino
+     * @param binary Indica se o destinatário usa o protocolo binário
+     */
+    public void sendTo(WebSocket conn, boolean binary) {
+        if (isEmpty()) return;
+        if (binary) conn.send(binary());
+        else conn.send(text());
+    }
+
+    /**
+     * Envia o lote como um único quadro de texto.
+     *
+     * @param conn Socket de destino
+     */
+    public void sendTo(WebSocket conn) {
+        if (!isEmpty()) conn.send(text());
+    }
+
+    @Override
+    public String toString() {
+        return (text != null) ? text.toString() : "";
+    }
+
+    private MessageBatch appendLine(String line) {
+        if (text.length() > 0) text.append(SEPARATOR);
+        text.append(line);
+        return this;
+    }
+
+    private MessageBatch writeByte(byte value) {
+        ensureCapacity(1);
+        bytes[size++] = value;
+        return this;
+    }
+
+    private MessageBatch writeInt(int value) {
+        ensureCapacity(4);
+        bytes[size++] = (byte) (value >>> 24);
+        bytes[size++] = (byte) (value >>> 16);
+        bytes[size++] = (byte) (value >>> 8);
+        bytes[size++] = (byte) value;
+        return this;
+    }
+
+    private MessageBatch writeString(String value) {
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(encoded.length, 0xFFFF);
+        ensureCapacity(2 + length);
+        bytes[size++] = (byte) (length >>> 8);
+        bytes[size++] = (byte) length;
+        System.arraycopy(encoded, 0, bytes, size, length);
+        size += length;
+        return this;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package br.usp.each.typerace.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Endpoint HTTP local das métricas: GET /stats devolve {@link ServerMetrics#getReport()} em texto puro.
+ * Escuta apenas na interface de loopback, para ser consultado (curl, scripts de monitoramento) na própria máquina do servidor.
+ */
+public class MetricsEndpoint {
+
+    /**
+     * Porta padrão do endpoint.
+     */
+    public static final int DEFAULT_PORT = 8081;
+
+    private final HttpServer http;
+
+    /**
+     * Construtor. O endpoint só começa a responder após {@link #start()}.
+     *
+     * @param port Porta na interface de loopback
+     * @param metrics Métricas do servidor
+     */
+    public MetricsEndpoint(int port, ServerMetrics metrics) throws IOException {
+        this.http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        http.createContext("/stats", exchange -> respond(exchange, metrics));
+    }
+
+    public void start() {
+        http.start();
+    }
+
+    public void stop() {
+        http.stop(0);
+    }
+
+    public int getPort() {
+        return http.getAddress().getPort();
+    }
+
+    private static void respond(HttpExchange exchange, ServerMetrics metrics) throws IOException {
+        try {
+            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = metrics.getReport().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
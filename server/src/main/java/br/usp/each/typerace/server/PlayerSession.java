@@ -0,0 +1,192 @@
+package br.usp.each.typerace.server;
+
+import org.java_websocket.WebSocket;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Sessão de um jogador, anexada ao seu socket com {@link WebSocket#setAttachment(Object)}.
+ * Os contadores da partida só são lidos e escritos na pista da sala do jogador, por isso são primitivos e sem sincronização.
+ * <p>
+ * A sessão sobrevive a uma queda da conexão durante a janela de retomada: o jogador que reconecta com o token da sessão
+ * volta a ela com outro socket ({@link #attach(WebSocket, boolean)}), sem perder pontos nem a posição na partida.
+ */
+public class PlayerSession {
+
+    private static final SecureRandom TOKENS = new SecureRandom();
+
+    private final String name;
+
+    /**
+     * Token de retomada da sessão, enviado ao jogador na entrada da sala.
+     */
+    private final String token;
+
+    /**
+     * Limite de taxa das mensagens recebidas do jogador, consultado pelas threads do WebSocket.
+     */
+    private final TokenBucket inbound;
+
+    /**
+     * Socket atual do jogador; trocado na retomada da sessão, na pista da sala.
+     */
+    private volatile WebSocket conn;
+
+    /**
+     * Indica se o jogador negociou o protocolo binário ({@link Protocol}) no handshake.
+     */
+    private volatile boolean binary;
+
+    /**
+     * Sala atual do jogador. Escrita pelas threads do WebSocket ao entrar em uma sala, lida pelas pistas.
+     */
+    private volatile Room room;
+
+    /**
+     * Indica estado atual do jogador.
+     * 0: aguardando
+     * 1: pronto para partida
+     * 2: em partida
+     */
+    int state;
+
+    /**
+     * Posição do jogador na sequência de palavras da partida.
+     */
+    int position;
+
+    /**
+     * Quantidade de pontos do jogador.
+     */
+    int points;
+
+    /**
+     * Quantidade de erros do jogador.
+     */
+    int errors;
+
+    /**
+     * Nível de habilidade do jogador na fila de partidas automáticas; -1 até ser calculado.
+     */
+    int skillTier = -1;
+
+    /**
+     * Instante (System.nanoTime) do envio da palavra atual ao jogador.
+     */
+    long wordSentAt;
+
+    /**
+     * Tempos de resposta, palavras por minuto e precisão do jogador na partida.
+     */
+    final TypingStats typing = new TypingStats();
+
+    /**
+     * Construtor. As mensagens do jogador não têm limite de taxa.
+     *
+     * @param name ID do jogador
+     * @param conn Socket do jogador
+     * @param binary Indica se o jogador negociou o protocolo binário
+     */
+    public PlayerSession(String name, WebSocket conn, boolean binary) {
+        this(name, conn, binary, new TokenBucket(0, 0));
+    }
+
+    /**
+     * Construtor.
+     *
+     * @param name ID do jogador
+     * @param conn Socket do jogador
+     * @param binary Indica se o jogador negociou o protocolo binário
+     * @param inbound Limite de taxa das mensagens recebidas do jogador
+     */
+    public PlayerSession(String name, WebSocket conn, boolean binary, TokenBucket inbound) {
+        this.name = name;
+        this.token = newToken();
+        this.inbound = inbound;
+        this.conn = conn;
+        this.binary = binary;
+    }
+
+    /**
+     * Gera um token aleatório de 128 bits, em Base64 próprio para URL.
+     */
+    private static String newToken() {
+        byte[] bytes = new byte[16];
+        TOKENS.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    String getToken() {
+        return token;
+    }
+
+    /**
+     * Compara o token informado pelo cliente com o da sessão, em tempo constante.
+     *
+     * @param candidate Token enviado no handshake
+     */
+    boolean matchesToken(String candidate) {
+        return MessageDigest.isEqual(token.getBytes(StandardCharsets.US_ASCII), candidate.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Associa a sessão a um novo socket, na retomada. Deve rodar na pista da sala.
+     *
+     * @param conn Novo socket do jogador
+     * @param binary Indica se o novo socket negociou o protocolo binário
+     */
+    void attach(WebSocket conn, boolean binary) {
+        this.conn = conn;
+        this.binary = binary;
+    }
+
+    public TokenBucket getInbound() {
+        return inbound;
+    }
+
+    public WebSocket getConnection() {
+        return conn;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    public Room getRoom() {
+        return room;
+    }
+
+    void setRoom(Room room) {
+        this.room = room;
+    }
+
+    public int getPoints() {
+        return points;
+    }
+
+    public int getErrors() {
+        return errors;
+    }
+
+    public TypingStats getTypingStats() {
+        return typing;
+    }
+
+    /**
+     * Zera os contadores da partida.
+     */
+    void resetStatistics() {
+        position = 0;
+        points = 0;
+        errors = 0;
+        wordSentAt = 0;
+        typing.reset();
+    }
+}
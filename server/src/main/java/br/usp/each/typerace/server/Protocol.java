@@ -0,0 +1,94 @@
+package br.usp.each.typerace.server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Protocolo binário do Typerace (versão 1), negociado no handshake pelo cabeçalho {@link #HEADER}.
+ * Clientes que não o pedem continuam no protocolo de texto. Para retomar uma sessão após queda da conexão, o cliente envia
+ * no handshake o cabeçalho {@link #SESSION_HEADER} com o token recebido em {@link #SESSION}.
+ * <p>
+ * Cada quadro binário começa com um byte de versão, seguido de um ou mais registros. Cada registro começa com um byte de opcode;
+ * inteiros são de 32 bits (big-endian) e strings são UTF-8 precedidas do tamanho em 16 bits.
+ * <ul>
+ *     <li>{@link #TEXT}: string (mensagem livre)</li>
+ *     <li>{@link #WORD}: int número da palavra (a partir de 1), string palavra</li>
+ *     <li>{@link #ANSWER_RESULT}: byte acertou (1/0), int pontos, int erros</li>
+ *     <li>{@link #SCORE_UPDATE}: string jogador, int pontos</li>
+ *     <li>{@link #COUNTDOWN}: byte segundos restantes</li>
+ *     <li>{@link #LEADERBOARD}: int posição, string jogador, int pontos, int erros</li>
+ *     <li>{@link #SESSION}: string token de retomada da sessão</li>
+ *     <li>{@link #RESUMED}: int pontos, int erros (estado restaurado após reconexão)</li>
+ *     <li>{@link #TYPING_STATS}: int pontos, int erros, int palavras por minuto (décimos), int precisão (décimos de %),
+ *     int tempo de resposta p50, p90 e p99 (ms)</li>
+ *     <li>{@link #RACE}: byte estado completo (1) ou diferenças (0), byte partida em andamento (1/0); seguido de registros
+ *     {@link #RACE_PLAYER} e {@link #RACE_REMOVED} (só para espectadores)</li>
+ *     <li>{@link #RACE_PLAYER}: string jogador, int palavra atual (a partir de 1; 0 fora de partida), int pontos</li>
+ *     <li>{@link #RACE_REMOVED}: string jogador que saiu da sala</li>
+ *     <li>{@link #ANSWER} (cliente para servidor): string texto digitado</li>
+ * </ul>
+ */
+public final class Protocol {
+
+    /**
+     * Cabeçalho HTTP usado na negociação do protocolo.
+     */
+    public static final String HEADER = "Typerace-Protocol";
+
+    /**
+     * Valor do cabeçalho que identifica o protocolo binário versão 1.
+     */
+    public static final String BINARY_V1 = "bin1";
+
+    /**
+     * Cabeçalho HTTP com o token de retomada da sessão, enviado pelo cliente ao reconectar.
+     */
+    public static final String SESSION_HEADER = "Typerace-Session";
+
+    public static final byte VERSION = 1;
+
+    public static final byte TEXT = 0x01;
+    public static final byte WORD = 0x02;
+    public static final byte ANSWER_RESULT = 0x03;
+    public static final byte SCORE_UPDATE = 0x04;
+    public static final byte COUNTDOWN = 0x05;
+    public static final byte LEADERBOARD = 0x06;
+    public static final byte SESSION = 0x07;
+    public static final byte RESUMED = 0x08;
+    public static final byte TYPING_STATS = 0x09;
+    public static final byte RACE = 0x0A;
+    public static final byte RACE_PLAYER = 0x0B;
+    public static final byte RACE_REMOVED = 0x0C;
+    public static final byte ANSWER = 0x10;
+
+    private Protocol() {
+    }
+
+    /**
+     * Lê uma string (tamanho em 16 bits seguido de bytes UTF-8).
+     *
+     * @param buffer Buffer posicionado no início da string
+     */
+    public static String readString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodifica um quadro {@link #ANSWER} enviado pelo cliente.
+     *
+     * @param frame Quadro binário recebido
+     * @return Texto digitado pelo jogador, ou null se o quadro não for uma resposta válida
+     */
+    public static String decodeAnswer(ByteBuffer frame) {
+        if (frame.remaining() < 4) return null;
+        if (frame.get() != VERSION || frame.get() != ANSWER) return null;
+        try {
+            return readString(frame);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,917 @@
+package br.usp.each.typerace.server;
+
+import com.google.common.base.Stopwatch;
+import org.java_websocket.WebSocket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Sala de jogo: guarda o estado de uma partida e de seus jogadores. Todos os métodos que alteram o estado
+ * devem rodar na pista da sala (ver {@link #execute(Runnable)}), o que dispensa sincronização entre eles.
+ */
+public class Room {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Room.class);
+
+    /**
+     * Log estruturado dos eventos de partida (pares chave=valor), gravado em arquivo próprio (ver log4j2.xml).
+     */
+    private static final Logger MATCH_EVENTS = LoggerFactory.getLogger("typerace.partidas");
+
+    /**
+     * Pontuação que encerra a partida.
+     */
+    static final int WINNING_POINTS = 20;
+
+    /**
+     * Quantidade de colocados exibidos pelo comando /placar.
+     */
+    static final int STANDINGS_TOP = 5;
+
+    /**
+     * Intervalo mínimo entre duas transmissões da classificação parcial durante a partida.
+     */
+    static final long STANDINGS_PUSH_INTERVAL_MILLIS = 1000;
+
+    /**
+     * Duração da contagem regressiva antes da partida, em segundos.
+     */
+    static final int COUNTDOWN_SECONDS = 5;
+
+    /**
+     * Quantidade de partidas exibidas pelo comando /historico.
+     */
+    static final int HISTORY_LIMIT = 5;
+
+    /**
+     * Intervalo da verificação periódica da fila de partidas automáticas (espera máxima), na sala de espera.
+     */
+    static final long MATCHMAKING_TICK_MILLIS = 250;
+
+    private static final DateTimeFormatter HISTORY_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm").withZone(ZoneId.systemDefault());
+
+    private final String id;
+
+    private final GameScheduler scheduler;
+
+    /**
+     * Mapeia ID dos jogadores da sala com suas sessões.
+     */
+    private final Map<String, PlayerSession> players;
+
+    /**
+     * Transmissor das mensagens da sala; só os jogadores inscritos nele recebem as transmissões.
+     */
+    private final Broadcaster broadcaster;
+
+    /**
+     * Classificação ao vivo dos jogadores da sala, atualizada a cada acerto.
+     */
+    private final Standings standings;
+
+    /**
+     * Jogadores cuja pontuação mudou desde a última transmissão da classificação parcial.
+     */
+    private final Set<PlayerSession> changedStandings;
+
+    /**
+     * Indica que já há uma transmissão da classificação parcial agendada.
+     */
+    private boolean standingsPushScheduled;
+
+    /**
+     * Corrida transmitida aos espectadores da sala.
+     */
+    private final SpectatorFeed spectators;
+
+    /**
+     * Indica que já há uma transmissão da corrida aos espectadores agendada.
+     */
+    private boolean spectatorTickScheduled;
+
+    /**
+     * Indica estado atual da sala.
+     * 0: aguardando "pronto" dos jogadores atuais
+     * 1: aguardando próximo jogador
+     * 2: partida em andamento
+     * 3: contagem regressiva em andamento
+     */
+    private int state;
+
+    /**
+     * Quantidade de jogadores da sala que ainda não enviaram /pronto (estado 0). Mantida a cada mudança de estado, para que
+     * a verificação de "todos prontos" não percorra os jogadores.
+     */
+    private int waiting;
+
+    /**
+     * Fila de partidas automáticas, se esta é a sala de espera ({@link Matchmaker#LOBBY_ROOM}); null nas demais salas.
+     */
+    private Matchmaker matchmaker;
+
+    /**
+     * Recebe cada grupo formado pela fila e o leva a uma nova sala.
+     */
+    private Consumer<List<PlayerSession>> matchStarter;
+
+    /**
+     * Indica que já há uma verificação da fila de partidas agendada.
+     */
+    private boolean matchmakingTickScheduled;
+
+    /**
+     * Banco de palavras do servidor.
+     */
+    private final WordBank wordBank;
+
+    private final ServerMetrics metrics;
+
+    /**
+     * Histórico em que as partidas encerradas são gravadas.
+     */
+    private final MatchHistory history;
+
+    /**
+     * Sequência de palavras da partida atual: a palavra N da partida é wordBank.word(sequence.index(N)).
+     */
+    private WordSequence sequence;
+
+    /**
+     * Semente a ser usada na próxima partida, para reproduzi-la; null para sortear uma nova.
+     */
+    private Long nextSeed;
+
+    private Stopwatch stopwatch;
+
+    /**
+     * Instante (System.nanoTime) em que a contagem regressiva da partida atual começou.
+     */
+    private long countdownStartedAt;
+
+    /**
+     * Número da contagem regressiva atual; incrementado ao iniciar ou cancelar uma contagem, para que os ticks e o início de
+     * uma contagem cancelada sejam ignorados.
+     */
+    private int countdownGeneration;
+
+    /**
+     * Indica que a sala ficou vazia e foi retirada do registro; jogadores que chegarem depois disso devem ir para uma nova instância.
+     */
+    private boolean closed;
+
+    /**
+     * Construtor.
+     *
+     * @param id ID da sala, extraído da URI dos jogadores
+     * @param scheduler Agendador cujas pistas executam a lógica das salas
+     * @param wordBank Banco de palavras do servidor
+     */
+    Room(String id, GameScheduler scheduler, WordBank wordBank) {
+        this(id, scheduler, wordBank, new ServerMetrics());
+    }
+
+    /**
+     * Construtor.
+     *
+     * @param id ID da sala, extraído da URI dos jogadores
+     * @param scheduler Agendador cujas pistas executam a lógica das salas
+     * @param wordBank Banco de palavras do servidor
+     * @param metrics Métricas do servidor
+     */
+    Room(String id, GameScheduler scheduler, WordBank wordBank, ServerMetrics metrics) {
+        this(id, scheduler, wordBank, metrics, MatchHistory.DISABLED);
+    }
+
+    /**
+     * Construtor.
+     *
+     * @param id ID da sala, extraído da URI dos jogadores
+     * @param scheduler Agendador cujas pistas executam a lógica das salas
+     * @param wordBank Banco de palavras do servidor
+     * @param metrics Métricas do servidor
+     * @param history Histórico em que as partidas encerradas são gravadas
+     */
+    Room(String id, GameScheduler scheduler, WordBank wordBank, ServerMetrics metrics, MatchHistory history) {
+        this.id = id;
+        this.scheduler = scheduler;
+        this.players = new HashMap<>();
+        this.broadcaster = new Broadcaster();
+        this.standings = new Standings(WINNING_POINTS);
+        this.changedStandings = new LinkedHashSet<>();
+        this.spectators = new SpectatorFeed();
+        this.state = 0;
+        this.wordBank = wordBank;
+        this.metrics = metrics;
+        this.history = history;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Transforma esta sala em sala de espera: /pronto coloca o jogador na fila de partidas automáticas. Deve ser chamada
+     * antes de a sala ser publicada no registro.
+     *
+     * @param matchmaker Fila de partidas
+     * @param matchStarter Recebe cada grupo formado e o leva a uma nova sala
+     */
+    void enableMatchmaking(Matchmaker matchmaker, Consumer<List<PlayerSession>> matchStarter) {
+        this.matchmaker = matchmaker;
+        this.matchStarter = matchStarter;
+    }
+
+    /**
+     * Executa tarefa na pista desta sala.
+     *
+     * @param task Tarefa a ser executada
+     */
+    public void execute(Runnable task) {
+        scheduler.execute(id, task);
+    }
+
+    /**
+     * Insere jogador na sala e transmite mensagem de entrada. Deve rodar na pista da sala.
+     *
+     * @param session Sessão do jogador
+     * @return false se a sala já foi encerrada e o jogador deve ser inserido em outra instância
+     */
+    boolean join(PlayerSession session) {
+        return join(session, true);
+    }
+
+    /**
+     * Insere jogador na sala e transmite mensagem de entrada. Deve rodar na pista da sala.
+     *
+     * @param session Sessão do jogador
+     * @param welcome Indica se as regras do jogo devem ser enviadas ao jogador
+     * @return false se a sala já foi encerrada e o jogador deve ser inserido em outra instância
+     */
+    private boolean join(PlayerSession session, boolean welcome) {
+        if (closed) return false;
+        players.put(session.getName(), session);
+        broadcaster.subscribe(session);
+        session.state = 0;
+        waiting++;
+        session.resetStatistics();
+        standings.add(session);
+        send(session, MessageBatch.forSession(session).session(session.getToken()).line("-------"));
+        broadcast(announcement()
+                .line(session.getName() + " entrou na partida.")
+                .line(players.size() + ((players.size() <= 1) ? " jogador está conectado agora." : " jogadores estão conectados agora.")));
+        if (welcome) scheduler.schedule(id, () -> sendWelcome(session), 1, TimeUnit.SECONDS);
+        if (this.state == 1) this.state = 0;
+        return true;
+    }
+
+    /**
+     * Recebe os jogadores agrupados pela fila de partidas automáticas, já prontos, e inicia a contagem regressiva.
+     * Deve rodar na pista da sala, criada para o grupo.
+     *
+     * @param group Jogadores da partida
+     * @return true se nenhum jogador chegou à sala (todos desconectaram) nem há espectadores, e ela deve ser retirada do registro
+     */
+    boolean startMatchmade(List<PlayerSession> group) {
+        for (PlayerSession p : group) {
+            // Quem desconectou durante a troca de sala já teve a saída tratada
+            if (p.getRoom() != this || !p.getConnection().isOpen()) continue;
+            join(p, false);
+            p.state = 1;
+            waiting--;
+        }
+        if (players.isEmpty()) {
+            // Espectadores que chegaram antes dos jogadores mantêm a sala aberta
+            closed = spectators.isEmpty();
+            return closed;
+        }
+        if (players.size() > 1) {
+            startGame();
+        } else {
+            broadcast("Os outros jogadores saíram antes do início. Para procurar outra partida, entre na sala " + Matchmaker.LOBBY_ROOM + ".");
+        }
+        return false;
+    }
+
+    /**
+     * Retira jogador da sala e avisa os demais. Deve rodar na pista da sala.
+     *
+     * @param session Sessão do jogador
+     * @return true se a sala ficou vazia
+     */
+    boolean leave(PlayerSession session) {
+        if (removePlayer(session)) {
+            broadcast(session.getName() + " foi desconectado da partida.");
+            // Enquanto houver espectadores, a sala vazia continua aberta, à espera de jogadores
+            if (players.isEmpty() && spectators.isEmpty()) closed = true;
+            else if (players.isEmpty()) abandonMatch();
+        }
+        return closed;
+    }
+
+    /**
+     * Insere espectador na sala. O estado completo da corrida é enviado a ele e, depois, só as diferenças, a cada
+     * {@link SpectatorFeed#TICK_MILLIS} ms. Deve rodar na pista da sala.
+     *
+     * @param spectator Espectador que entra
+     * @return false se a sala já foi encerrada e o espectador deve ser inserido em outra instância
+     */
+    boolean watch(Spectator spectator) {
+        if (closed) return false;
+        // Leva os espectadores atuais ao estado de agora, que é o estado completo enviado ao novo
+        publishRaceDelta();
+        MessageBatch snapshot = spectators.add(spectator, players, isPlaying());
+        WebSocket conn = spectator.getConnection();
+        scheduler.execute(SpectatorFeed.laneKey(id), () -> {
+            snapshot.sendTo(conn, spectator.isBinary());
+            metrics.messagesOut.increment();
+            spectators.getBroadcaster().subscribe(conn, spectator.isBinary());
+        });
+        scheduleSpectatorTick();
+        return true;
+    }
+
+    /**
+     * Retira espectador da sala; se ele não estava nela (a conexão fechou enquanto entrava em outra instância da sala), os
+     * espectadores não mudam. Deve rodar na pista da sala.
+     *
+     * @param spectator Espectador que sai
+     * @return true se a sala está vazia (sem jogadores nem espectadores)
+     */
+    boolean unwatch(Spectator spectator) {
+        if (spectators.remove(spectator)) {
+            scheduler.execute(SpectatorFeed.laneKey(id), () -> spectators.getBroadcaster().unsubscribe(spectator.getConnection(), spectator.isBinary()));
+        }
+        if (players.isEmpty() && spectators.isEmpty()) closed = true;
+        return closed;
+    }
+
+    /**
+     * Agenda a próxima transmissão da corrida aos espectadores, se ainda não houver uma.
+     */
+    private void scheduleSpectatorTick() {
+        if (spectatorTickScheduled) return;
+        spectatorTickScheduled = true;
+        scheduler.schedule(id, () -> {
+            spectatorTickScheduled = false;
+            if (closed || spectators.isEmpty()) return;
+            publishRaceDelta();
+            scheduleSpectatorTick();
+        }, SpectatorFeed.TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Calcula as diferenças da corrida desde a última transmissão e as envia aos espectadores, na pista de envio.
+     */
+    private void publishRaceDelta() {
+        MessageBatch delta = spectators.delta(players, isPlaying());
+        if (delta == null) return;
+        scheduler.execute(SpectatorFeed.laneKey(id), () -> metrics.messagesOut.add(spectators.getBroadcaster().publish(delta)));
+    }
+
+    /**
+     * Retira jogador da sala, da classificação e da fila de partidas, sem avisar os demais.
+     *
+     * @param session Sessão do jogador
+     * @return false se o jogador não estava na sala
+     */
+    private boolean removePlayer(PlayerSession session) {
+        if (!players.remove(session.getName(), session)) return false;
+        if (session.state == 0) waiting--;
+        if (matchmaker != null) matchmaker.remove(session);
+        broadcaster.unsubscribe(session);
+        standings.remove(session);
+        changedStandings.remove(session);
+        return true;
+    }
+
+    /**
+     * Suspende o jogador cuja conexão caiu: ele continua na sala e na classificação, mas deixa de receber as transmissões
+     * até retomar a sessão ou a janela de retomada expirar. Deve rodar na pista da sala.
+     *
+     * @param session Sessão do jogador
+     */
+    void suspend(PlayerSession session) {
+        if (players.get(session.getName()) != session) return;
+        broadcaster.unsubscribe(session);
+        if (matchmaker != null && matchmaker.remove(session)) {
+            // Sem conexão, o jogador não pode ir para uma partida; volta a aguardar /pronto ao retomar a sessão
+            session.state = 0;
+            waiting++;
+        }
+        broadcast(session.getName() + " perdeu a conexão. Aguardando reconexão.");
+    }
+
+    /**
+     * Retoma a sessão de um jogador com um novo socket e reenvia, em um único quadro, apenas o estado perdido: pontos, erros
+     * e a palavra atual da partida. Deve rodar na pista da sala.
+     *
+     * @param session Sessão do jogador
+     * @param conn Novo socket do jogador
+     * @param binary Indica se o novo socket negociou o protocolo binário
+     * @return false se a sala foi encerrada (por exemplo, movida para outra instância) ou o jogador já não está nela; o novo
+     * socket fica anexado à sessão, e o jogador deve entrar de novo pelo caminho normal
+     */
+    boolean resume(PlayerSession session, WebSocket conn, boolean binary) {
+        broadcaster.unsubscribe(session);
+        session.attach(conn, binary);
+        if (closed || players.get(session.getName()) != session) return false;
+        broadcast(session.getName() + " reconectou.");
+        broadcaster.subscribe(session);
+        MessageBatch reply = MessageBatch.forSession(session)
+                .line("Sessão retomada.")
+                .resumed(session.getPoints(), session.getErrors());
+        if (this.state == 2 && session.state == 2) {
+            reply.word(session.position + 1, currentWord(session));
+            // O tempo sem conexão não conta como tempo de resposta
+            session.wordSentAt = System.nanoTime();
+        } else if (this.state != 3) {
+            reply.line("Nenhuma partida em andamento. Para jogar, envie /pronto.");
+        }
+        send(session, reply);
+        return true;
+    }
+
+    /**
+     * Envia as regras do jogo ao jogador recém-conectado. Agendada pelo join com atraso de 1 segundo.
+     *
+     * @param session Sessão do jogador que entrou
+     */
+    private void sendWelcome(PlayerSession session) {
+        // O jogador pode ter ido para uma partida automática antes das regras serem enviadas
+        if (!session.getConnection().isOpen() || session.getRoom() != this) return;
+        send(session, MessageBatch.forSession(session)
+                .line("-------")
+                .line("Bem-vindo ao Typerace Online!")
+                .line("- REGRAS -")
+                .line("O objetivo do jogo é escrever o máximo de palavras no menor tempo possível.")
+                .line("Após o início da partida, os jogadores receberão palavras nas suas telas em uma mesma ordem.")
+                .line("Se você digitar a palavra corretamente, ganha um ponto.")
+                .line("A primeira pessoa a atingir " + WINNING_POINTS + " pontos vence a partida!")
+                .line("Durante a partida, a classificação parcial é enviada periodicamente; para consultá-la a qualquer momento, envie o comando /placar")
+                .line("Para ver suas últimas partidas e seu recorde, envie /historico ou /recorde")
+                .line("- INICIANDO O JOGO -")
+                .line("Quando estiver pronto para jogar, envie o comando /pronto")
+                .line("Se houverem mais de dois jogadores no servidor e todos estiverem prontos, uma contagem regressiva se iniciará automaticamente")
+                .line((matchmaker != null)
+                        ? "Nesta sala, /pronto coloca você na fila de partidas automáticas, com jogadores do seu nível"
+                        : "Para ser agrupado automaticamente com jogadores do seu nível, entre na sala " + Matchmaker.LOBBY_ROOM)
+                .line("Para sair do servidor, basta enviar o comando /sair")
+                .line("-------"));
+    }
+
+    /**
+     * Trata mensagem de um jogador da sala. Realiza funções como início de partida e encerramento de conexão, quando não há jogo em andamento, e checa respostas quando há.
+     * Deve rodar na pista da sala.
+     *
+     * @param session Sessão do jogador
+     * @param message String de texto enviada pelo jogador
+     */
+    void onMessage(PlayerSession session, String message) {
+        onMessage(session, message, System.nanoTime());
+    }
+
+    /**
+     * Trata mensagem de um jogador da sala, como {@link #onMessage(PlayerSession, String)}.
+     * Deve rodar na pista da sala.
+     *
+     * @param session Sessão do jogador
+     * @param message String de texto enviada pelo jogador
+     * @param receivedAt Instante (System.nanoTime) da chegada da mensagem, usado no tempo de resposta da palavra
+     */
+    void onMessage(PlayerSession session, String message, long receivedAt) {
+        if (session.getRoom() != this) return;
+        WebSocket conn = session.getConnection();
+        if (message.equalsIgnoreCase("/placar")) {
+            sendStandings(session);
+            return;
+        } else if (message.equalsIgnoreCase("/historico")) {
+            sendHistory(session);
+            return;
+        } else if (message.equalsIgnoreCase("/recorde")) {
+            sendPersonalBest(session);
+            return;
+        }
+        if (matchmaker != null) {
+            onLobbyMessage(session, message);
+        } else if (this.state != 2) {
+            if (message.equalsIgnoreCase("/pronto") && session.state == 0) {
+                broadcast(session.getName() + " está pronto para começar.");
+                session.state = 1;
+                waiting--;
+                if (this.state == 0 && players.size() > 1 && allReady()) {
+                    startGame();
+                } else if (players.size() == 1) {
+                    broadcast("Pelo menos dois jogadores são necessários para iniciar partida.");
+                }
+            } else if (message.equalsIgnoreCase("/sair")) {
+                conn.close(1001, "Solicitação do jogador");
+            }
+        } else {
+            MessageBatch reply = MessageBatch.forSession(session);
+            String word = matchWord(session.position);
+            // Quem entrou com a partida em andamento ainda não recebeu palavra: a resposta não tem tempo a medir
+            boolean timed = session.wordSentAt != 0;
+            if (message.equals(word)) {
+                session.points += 1;
+                if (timed) session.typing.record(receivedAt - session.wordSentAt, true, word.length());
+                standings.update(session);
+                markStandingsChanged(session);
+                reply.answerResult(true, session.points, session.errors);
+            } else {
+                session.errors += 1;
+                if (timed) session.typing.record(receivedAt - session.wordSentAt, false, word.length());
+                reply.answerResult(false, session.points, session.errors);
+            }
+            if (session.points >= WINNING_POINTS) {
+                send(session, reply);
+                endGame();
+                return;
+            }
+            session.position += 1;
+            send(session, reply.word(session.position + 1, matchWord(session.position)));
+            session.wordSentAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Trata mensagem de um jogador na sala de espera: /pronto entra na fila de partidas automáticas e /cancelar sai dela.
+     *
+     * @param session Sessão do jogador
+     * @param message String de texto enviada pelo jogador
+     */
+    private void onLobbyMessage(PlayerSession session, String message) {
+        if (message.equalsIgnoreCase("/pronto") && session.state == 0) {
+            int tier = skillTier(session);
+            matchmaker.enqueue(session, tier, System.nanoTime());
+            session.state = 1;
+            waiting--;
+            send(session, MessageBatch.forSession(session).line("Procurando partida (nível " + (tier + 1) + ", " + matchmaker.size()
+                    + ((matchmaker.size() == 1) ? " jogador" : " jogadores") + " na fila). Para sair da fila, envie /cancelar"));
+            matchPlayers();
+        } else if (message.equalsIgnoreCase("/cancelar") && matchmaker.remove(session)) {
+            session.state = 0;
+            waiting++;
+            send(session, MessageBatch.forSession(session).line("Você saiu da fila."));
+        } else if (message.equalsIgnoreCase("/sair")) {
+            session.getConnection().close(1001, "Solicitação do jogador");
+        }
+    }
+
+    /**
+     * Nível de habilidade do jogador, pela média de palavras corretas por minuto das suas últimas partidas, mantida em
+     * memória pelo histórico. Calculado na primeira vez que o jogador entra na fila e guardado na sessão.
+     *
+     * @param session Sessão do jogador
+     */
+    private int skillTier(PlayerSession session) {
+        if (session.skillTier < 0) {
+            session.skillTier = Matchmaker.tierOf(history.averageWordsPerMinute(session.getName(), HISTORY_LIMIT));
+        }
+        return session.skillTier;
+    }
+
+    /**
+     * Forma as partidas possíveis com os jogadores da fila e as leva a novas salas. Enquanto houver jogadores na fila,
+     * agenda nova verificação, para respeitar a espera máxima.
+     */
+    private void matchPlayers() {
+        List<PlayerSession> group;
+        while ((group = matchmaker.nextGroup(System.nanoTime())) != null) {
+            for (PlayerSession p : group) {
+                removePlayer(p);
+            }
+            LOG.info("[{}] Partida automática formada com {} jogadores.", id, group.size());
+            matchStarter.accept(group);
+        }
+        if (matchmaker.size() > 0 && !matchmakingTickScheduled) {
+            matchmakingTickScheduled = true;
+            scheduler.schedule(id, () -> {
+                matchmakingTickScheduled = false;
+                matchPlayers();
+            }, MATCHMAKING_TICK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Envia ao jogador os primeiros colocados e a sua posição na classificação atual.
+     *
+     * @param session Sessão do jogador
+     */
+    private void sendStandings(PlayerSession session) {
+        MessageBatch reply = MessageBatch.forSession(session)
+                .line("-------")
+                .line("Classificação:");
+        for (PlayerSession p : standings.top(STANDINGS_TOP)) {
+            reply.leaderboardEntry(standings.rank(p), p.getName(), p.getPoints(), p.getErrors());
+        }
+        send(session, reply.line("Sua posição: " + standings.rank(session) + " de " + standings.size())
+                .line("-------"));
+    }
+
+    /**
+     * Envia ao jogador suas últimas partidas registradas no histórico.
+     *
+     * @param session Sessão do jogador
+     */
+    private void sendHistory(PlayerSession session) {
+        List<MatchRecord> matches = history.recentMatches(session.getName(), HISTORY_LIMIT);
+        MessageBatch reply = MessageBatch.forSession(session).line("-------");
+        if (matches.isEmpty()) {
+            reply.line("Você ainda não tem partidas registradas.");
+        } else {
+            reply.line("Suas últimas partidas:");
+            for (MatchRecord match : matches) {
+                MatchRecord.PlayerResult result = match.resultOf(session.getName());
+                reply.line(HISTORY_DATE.format(Instant.ofEpochMilli(match.getFinishedAt())) + " - sala " + match.getRoomId() + ": "
+                        + match.rankOf(session.getName()) + "º de " + match.getResults().size() + ", "
+                        + result.getPoints() + " pontos, " + result.getErrors() + " erros, "
+                        + String.format("%.1f", match.getDurationMillis() / 1000.0) + " s");
+            }
+        }
+        send(session, reply.line("-------"));
+    }
+
+    /**
+     * Envia ao jogador seu recorde pessoal (partida com mais palavras corretas por minuto).
+     *
+     * @param session Sessão do jogador
+     */
+    private void sendPersonalBest(PlayerSession session) {
+        MatchRecord best = history.personalBest(session.getName());
+        MessageBatch reply = MessageBatch.forSession(session);
+        if (best == null) {
+            reply.line("Você ainda não tem partidas registradas.");
+        } else {
+            MatchRecord.PlayerResult result = best.resultOf(session.getName());
+            reply.line("Seu recorde: " + String.format("%.1f", best.wordsPerMinute(session.getName())) + " palavras por minuto ("
+                    + result.getPoints() + " pontos em " + String.format("%.1f", best.getDurationMillis() / 1000.0) + " s, sala "
+                    + best.getRoomId() + ", " + HISTORY_DATE.format(Instant.ofEpochMilli(best.getFinishedAt())) + ").");
+        }
+        send(session, reply);
+    }
+
+    /**
+     * Registra mudança de pontuação do jogador e agenda a transmissão da classificação parcial, se ainda não houver uma.
+     * Várias mudanças dentro do intervalo são agrupadas em uma única transmissão.
+     *
+     * @param session Sessão do jogador que pontuou
+     */
+    private void markStandingsChanged(PlayerSession session) {
+        changedStandings.add(session);
+        if (standingsPushScheduled) return;
+        standingsPushScheduled = true;
+        scheduler.schedule(id, this::pushStandings, STANDINGS_PUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Transmite as pontuações que mudaram desde a última transmissão. Roda na pista da sala, agendada por {@link #markStandingsChanged(PlayerSession)}.
+     */
+    private void pushStandings() {
+        standingsPushScheduled = false;
+        if (this.state != 2 || changedStandings.isEmpty()) {
+            changedStandings.clear();
+            return;
+        }
+        MessageBatch delta = announcement().line("Placar parcial:");
+        for (PlayerSession p : changedStandings) {
+            delta.scoreUpdate(p.getName(), p.getPoints());
+        }
+        changedStandings.clear();
+        broadcast(delta);
+    }
+
+    /**
+     * Classificação ao vivo da sala.
+     */
+    Standings getStandings() {
+        return standings;
+    }
+
+    /**
+     * Devolve a palavra de uma posição da partida atual.
+     *
+     * @param position Posição da palavra na partida, a partir de 0
+     */
+    private String matchWord(int position) {
+        return wordBank.word(sequence.index(position));
+    }
+
+    /**
+     * Devolve a palavra que o jogador deve digitar agora. Só faz sentido durante a partida.
+     *
+     * @param session Sessão do jogador
+     */
+    String currentWord(PlayerSession session) {
+        return matchWord(session.position);
+    }
+
+    /**
+     * Indica se há partida em andamento na sala.
+     */
+    boolean isPlaying() {
+        return state == 2;
+    }
+
+    /**
+     * Indica se a sala pode ser movida para outra instância: sem partida nem contagem regressiva em andamento.
+     */
+    boolean isIdle() {
+        return state == 0 || state == 1;
+    }
+
+    /**
+     * Encerra a sala e fecha as conexões de todos os jogadores e espectadores, para que reconectem em outra instância.
+     * Jogadores que chegarem depois disso são levados a outra instância da sala. Deve rodar na pista da sala.
+     *
+     * @param code Código de fechamento
+     * @param reason Motivo do fechamento (para {@link Server#CLOSE_REDIRECT}, a porta da nova instância)
+     */
+    void evacuate(int code, String reason) {
+        closed = true;
+        broadcast("A sala foi movida para outra instância do servidor. Reconectando...");
+        // Os jogadores saem da sala antes do fechamento: uma retomada que chegue antes do onClose não os encontra aqui
+        for (PlayerSession p : new ArrayList<>(players.values())) {
+            removePlayer(p);
+            p.getConnection().close(code, reason);
+        }
+        scheduler.execute(SpectatorFeed.laneKey(id), () -> spectators.getBroadcaster().closeAll(code, reason));
+    }
+
+    /**
+     * Fixa a semente da próxima partida da sala, para reproduzir uma partida anterior. Deve rodar na pista da sala.
+     *
+     * @param seed Semente registrada no início da partida a ser reproduzida
+     */
+    void setNextSeed(long seed) {
+        this.nextSeed = seed;
+    }
+
+    /**
+     * Verifica se todos os jogadores da sala estão prontos.
+     */
+    private boolean allReady() {
+        return waiting == 0;
+    }
+
+    /**
+     * Inicia contagem regressiva de 5 segundos e, ao fim dela, a partida. A contagem roda na pista da sala; o método retorna imediatamente.
+     */
+    private void startGame() {
+        this.state = 3;
+        countdownStartedAt = System.nanoTime();
+        int generation = ++countdownGeneration;
+        LOG.info("[{}] Iniciando contagem regressiva para início de partida.", id);
+        MATCH_EVENTS.info("evento=contagem sala={} jogadores={}", id, players.size());
+        broadcast("Iniciando partida em: ");
+        scheduler.countdown(id, COUNTDOWN_SECONDS, 1, TimeUnit.SECONDS, n -> {
+            if (generation == countdownGeneration) broadcast(announcement().countdown(n));
+        }, () -> {
+            if (generation == countdownGeneration) beginMatch();
+        });
+    }
+
+    /**
+     * Cancela a contagem ou a partida em andamento quando todos os jogadores saíram e só restam espectadores: a sala volta a
+     * aguardar jogadores, sem placar nem histórico.
+     */
+    private void abandonMatch() {
+        if (this.state != 2 && this.state != 3) return;
+        LOG.info("[{}] Todos os jogadores saíram; partida cancelada.", id);
+        countdownGeneration++;
+        countdownStartedAt = 0;
+        this.state = 0;
+    }
+
+    /**
+     * Chamada ao fim da contagem regressiva. Define a sequência de palavras da partida e envia a primeira.
+     */
+    void beginMatch() {
+        if (closed) return;
+        // Uma partida sem jogadores nunca terminaria; a sala volta a aguardar
+        if (players.isEmpty()) {
+            this.state = 0;
+            return;
+        }
+        this.state = 2;
+        for (PlayerSession p : players.values()) {
+            p.state = 2;
+        }
+        waiting = 0;
+        long seed = (nextSeed != null) ? nextSeed : ThreadLocalRandom.current().nextLong();
+        nextSeed = null;
+        sequence = new WordSequence(seed, wordBank.size());
+        standings.reset();
+        changedStandings.clear();
+        LOG.info("[{}] Iniciando partida. Semente: {}.", id, seed);
+        MATCH_EVENTS.info("evento=inicio sala={} semente={} jogadores={} palavras={}", id, seed, players.size(), wordBank.size());
+        stopwatch = Stopwatch.createStarted();
+        broadcast(announcement()
+                .line("Iniciando partida.")
+                .word(1, matchWord(0)));
+        long sentAt = System.nanoTime();
+        for (PlayerSession p : players.values()) {
+            p.wordSentAt = sentAt;
+        }
+        metrics.matchesStarted.increment();
+        if (countdownStartedAt != 0) {
+            // A primeira palavra é agendada um período depois do último tick da contagem
+            metrics.countdownDelay.record(System.nanoTime() - countdownStartedAt - TimeUnit.SECONDS.toNanos(COUNTDOWN_SECONDS + 1));
+            countdownStartedAt = 0;
+        }
+    }
+
+    /**
+     * Encerra a partida, transmite o placar e envia a cada jogador suas estatísticas de digitação.
+     */
+    void endGame() {
+        stopwatch.stop();
+        this.state = 0;
+        metrics.matchesFinished.increment();
+        metrics.matchDuration.record(stopwatch.elapsed(TimeUnit.NANOSECONDS));
+
+        List<PlayerSession> leaderboardEntries = standings.top(players.size());
+
+        MessageBatch leaderboard = announcement()
+                .line("-------")
+                .line("VITÓRIA DE " + leaderboardEntries.get(0).getName().toUpperCase() + "!")
+                .line("-------")
+                .line("Placar:");
+        List<MatchRecord.PlayerResult> results = new ArrayList<>(leaderboardEntries.size());
+        int i = 1;
+        for (PlayerSession p : leaderboardEntries) {
+            leaderboard.leaderboardEntry(i++, p.getName(), p.getPoints(), p.getErrors());
+            results.add(new MatchRecord.PlayerResult(p.getName(), p.getPoints(), p.getErrors()));
+        }
+        // Só enfileira; a gravação em disco é feita pela thread do histórico
+        history.record(new MatchRecord(id, sequence.getSeed(), System.currentTimeMillis(), stopwatch.elapsed(TimeUnit.MILLISECONDS), results));
+
+        LOG.info("[{}] Encerrando partida. Ganhador: {}. Tempo: {}.", id, leaderboardEntries.get(0).getName(), stopwatch);
+        if (MATCH_EVENTS.isInfoEnabled()) {
+            StringBuilder scores = new StringBuilder();
+            for (PlayerSession p : leaderboardEntries) {
+                if (scores.length() > 0) scores.append(',');
+                scores.append(p.getName()).append(':').append(p.getPoints()).append(':').append(p.getErrors());
+            }
+            MATCH_EVENTS.info("evento=fim sala={} semente={} vencedor={} duracao_ms={} placar={}",
+                    id, sequence.getSeed(), leaderboardEntries.get(0).getName(), stopwatch.elapsed(TimeUnit.MILLISECONDS), scores);
+        }
+        leaderboard.line("Tempo decorrido da partida: " + stopwatch.toString())
+                .line("-------")
+                .line("Para iniciar outra partida, digite /pronto e aguarde os outros jogadores.");
+        broadcast(leaderboard);
+
+        for (PlayerSession p : players.values()) {
+            // Jogadores suspensos (conexão caída) não recebem as estatísticas
+            if (p.getConnection().isOpen()) send(p, MessageBatch.forSession(p).typingStats(p.getPoints(), p.getErrors(), p.typing));
+            p.state = 0;
+            p.resetStatistics();
+        }
+        waiting = players.size();
+        standings.reset();
+        changedStandings.clear();
+    }
+
+    /**
+     * Transmite mensagem apenas aos jogadores desta sala.
+     *
+     * @param text Mensagem a ser transmitida
+     */
+    private void broadcast(String text) {
+        broadcast(announcement().line(text));
+    }
+
+    /**
+     * Cria lote para transmissão à sala, escrito apenas nos protocolos usados pelos jogadores presentes.
+     */
+    private MessageBatch announcement() {
+        return new MessageBatch(broadcaster.hasTextSubscribers(), broadcaster.hasBinarySubscribers());
+    }
+
+    /**
+     * Transmite um lote, codificado uma única vez por protocolo, apenas aos jogadores desta sala.
+     *
+     * @param batch Lote criado por {@link #announcement()}
+     */
+    private void broadcast(MessageBatch batch) {
+        metrics.messagesOut.add(broadcaster.publish(batch));
+    }
+
+    /**
+     * Envia um lote a um único jogador.
+     *
+     * @param session Sessão do jogador
+     * @param batch Lote criado por {@link MessageBatch#forSession(PlayerSession)}
+     */
+    private void send(PlayerSession session, MessageBatch batch) {
+        batch.sendTo(session);
+        metrics.messagesOut.increment();
+    }
+}
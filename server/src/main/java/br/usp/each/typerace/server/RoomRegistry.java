@@ -0,0 +1,162 @@
+package br.usp.each.typerace.server;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registro das salas ativas do servidor, indexadas pelo ID extraído da URI dos jogadores.
+ * Salas são criadas na entrada do primeiro jogador e retiradas quando ficam vazias. A sala {@link Matchmaker#LOBBY_ROOM}
+ * é criada como sala de espera, cujos grupos de jogadores prontos vão para salas novas ({@link #startMatch(List)}).
+ */
+public class RoomRegistry {
+
+    private final ConcurrentMap<String, Room> rooms;
+
+    private final GameScheduler scheduler;
+
+    private final WordBank wordBank;
+
+    private final ServerMetrics metrics;
+
+    private final MatchHistory history;
+
+    /**
+     * Numeração das salas das partidas automáticas.
+     */
+    private final AtomicLong matchSequence;
+
+    private volatile int matchSize = Matchmaker.DEFAULT_MATCH_SIZE;
+
+    private volatile int maxWaitSeconds = Matchmaker.DEFAULT_MAX_WAIT_SECONDS;
+
+    /**
+     * Diretório das instâncias do processo; null se o servidor roda em uma única instância.
+     */
+    private volatile ShardDirectory shards;
+
+    private volatile int shardIndex;
+
+    /**
+     * Construtor.
+     *
+     * @param scheduler Agendador cujas pistas executam a lógica das salas
+     * @param wordBank Banco de palavras usado pelas novas salas
+     */
+    public RoomRegistry(GameScheduler scheduler, WordBank wordBank) {
+        this(scheduler, wordBank, new ServerMetrics());
+    }
+
+    /**
+     * Construtor.
+     *
+     * @param scheduler Agendador cujas pistas executam a lógica das salas
+     * @param wordBank Banco de palavras usado pelas novas salas
+     * @param metrics Métricas do servidor, compartilhadas com as salas
+     */
+    public RoomRegistry(GameScheduler scheduler, WordBank wordBank, ServerMetrics metrics) {
+        this(scheduler, wordBank, metrics, MatchHistory.DISABLED);
+    }
+
+    /**
+     * Construtor.
+     *
+     * @param scheduler Agendador cujas pistas executam a lógica das salas
+     * @param wordBank Banco de palavras usado pelas novas salas
+     * @param metrics Métricas do servidor, compartilhadas com as salas
+     * @param history Histórico em que as salas gravam as partidas encerradas
+     */
+    public RoomRegistry(GameScheduler scheduler, WordBank wordBank, ServerMetrics metrics, MatchHistory history) {
+        this.rooms = new ConcurrentHashMap<>();
+        this.scheduler = scheduler;
+        this.wordBank = wordBank;
+        this.metrics = metrics;
+        this.history = history;
+        this.matchSequence = new AtomicLong();
+    }
+
+    /**
+     * Devolve a sala com o ID informado, criando-a se necessário.
+     *
+     * @param id ID da sala
+     */
+    public Room getOrCreate(String id) {
+        return rooms.computeIfAbsent(id, k -> {
+            metrics.roomsCreated.increment();
+            Room room = new Room(k, scheduler, wordBank, metrics, history);
+            if (k.equals(Matchmaker.LOBBY_ROOM)) room.enableMatchmaking(new Matchmaker(matchSize, maxWaitSeconds), this::startMatch);
+            return room;
+        });
+    }
+
+    /**
+     * Leva um grupo formado pela fila de partidas automáticas a uma sala nova, onde a contagem regressiva começa assim que
+     * os jogadores chegam.
+     *
+     * @param group Jogadores da partida
+     */
+    void startMatch(List<PlayerSession> group) {
+        ShardDirectory directory = shards;
+        // Com várias instâncias, a numeração é única no processo e a partida fica na instância dos jogadores
+        String roomId = (directory != null) ? directory.nextMatchRoom(shardIndex) : Matchmaker.MATCH_ROOM_PREFIX + matchSequence.incrementAndGet();
+        Room room = getOrCreate(roomId);
+        for (PlayerSession p : group) {
+            p.setRoom(room);
+        }
+        room.execute(() -> {
+            if (room.startMatchmade(group)) remove(room);
+        });
+    }
+
+    /**
+     * Define o tamanho das partidas automáticas e a espera máxima na fila, para salas de espera criadas a partir de agora.
+     *
+     * @param matchSize Quantidade de jogadores por partida
+     * @param maxWaitSeconds Espera máxima (s) antes de completar a partida com menos jogadores ou de outros níveis
+     */
+    public void setMatchmaking(int matchSize, int maxWaitSeconds) {
+        this.matchSize = matchSize;
+        this.maxWaitSeconds = maxWaitSeconds;
+    }
+
+    /**
+     * Indica a instância a que este registro pertence, quando o servidor roda em várias instâncias.
+     *
+     * @param directory Diretório das instâncias
+     * @param shard Índice desta instância
+     */
+    void setShard(ShardDirectory directory, int shard) {
+        this.shardIndex = shard;
+        this.shards = directory;
+    }
+
+    /**
+     * Devolve a sala com o ID informado, ou null se ela não existe.
+     *
+     * @param id ID da sala
+     */
+    public Room get(String id) {
+        return rooms.get(id);
+    }
+
+    /**
+     * Retira sala do registro (caso ela ainda seja a instância registrada para seu ID). Com várias instâncias, desfaz também a
+     * atribuição da sala no diretório, como a das partidas automáticas.
+     *
+     * @param room Sala a ser retirada
+     */
+    public void remove(Room room) {
+        if (!rooms.remove(room.getId(), room)) return;
+        metrics.roomsClosed.increment();
+        ShardDirectory directory = shards;
+        if (directory != null) directory.unassign(room.getId(), shardIndex);
+    }
+
+    /**
+     * Quantidade de salas ativas.
+     */
+    public int size() {
+        return rooms.size();
+    }
+}
@@ -0,0 +1,104 @@
+package br.usp.each.typerace.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Executor que roda as tarefas recebidas uma de cada vez, na ordem de chegada, sobre um executor subjacente
+ * (no modo de threads virtuais, uma thread virtual nova a cada rajada de tarefas). Equivale a uma pista sem thread
+ * própria: enquanto há tarefas na fila, uma única thread as consome; sem tarefas, não ocupa thread nenhuma.
+ */
+class SerialExecutor implements Executor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SerialExecutor.class);
+
+    private final Queue<Runnable> tasks;
+
+    private final Executor threads;
+
+    /**
+     * Indica que há uma thread consumindo a fila.
+     */
+    private final AtomicBoolean running;
+
+    private volatile boolean shutdown;
+
+    /**
+     * Construtor.
+     *
+     * @param threads Executor que fornece as threads que consomem a fila
+     */
+    SerialExecutor(Executor threads) {
+        this.tasks = new ConcurrentLinkedQueue<>();
+        this.threads = threads;
+        this.running = new AtomicBoolean();
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (shutdown) throw new RejectedExecutionException("Executor encerrado");
+        tasks.add(task);
+        drainIfIdle();
+    }
+
+    /**
+     * Descarta as tarefas pendentes e passa a recusar novas.
+     */
+    void shutdown() {
+        shutdown = true;
+        tasks.clear();
+    }
+
+    /**
+     * Espera, depois de {@link #shutdown()}, o fim da tarefa que estiver rodando.
+     *
+     * @param timeout Tempo máximo de espera
+     * @param unit Unidade do tempo
+     * @return false se o tempo acabou antes
+     */
+    synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (running.get()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) return false;
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    private void drainIfIdle() {
+        if (!tasks.isEmpty() && running.compareAndSet(false, true)) {
+            threads.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            Runnable task;
+            while (!shutdown && (task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    LOG.error("Erro em tarefa de sala.", e);
+                }
+            }
+        } finally {
+            running.set(false);
+            // Tarefa que chegou entre o último poll e a liberação da fila ainda precisa de uma thread
+            if (!shutdown) {
+                drainIfIdle();
+            } else {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+    }
+}
@@ -1,51 +1,144 @@
 package br.usp.each.typerace.server;
 
-import com.google.common.base.Stopwatch;
 import org.java_websocket.WebSocket;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.framing.CloseFrame;
 import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.handshake.ServerHandshakeBuilder;
 import org.java_websocket.server.WebSocketServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public class Server extends WebSocketServer {
 
+    private static final Logger LOG = LoggerFactory.getLogger(Server.class);
+
     /**
-     * Mapeia ID dos jogadores com seus sockets (na forma de um objeto Client)
+     * Sala usada quando a URI do jogador não informa uma.
      */
-    private final Map<String, WebSocket> connections;
+    public static final String DEFAULT_ROOM = "principal";
+
+    /**
+     * Janela de retomada padrão, em segundos.
+     */
+    public static final int DEFAULT_RESUME_WINDOW_SECONDS = 30;
+
+    /**
+     * Limite padrão de mensagens por segundo de cada jogador.
+     */
+    public static final int DEFAULT_MESSAGES_PER_SECOND = 10;
+
+    /**
+     * Rajada padrão de mensagens aceitas de uma vez, acima do limite por segundo.
+     */
+    public static final int DEFAULT_MESSAGE_BURST = 20;
 
     /**
-     * Indica estado atual do servidor.
-     * 0: aguardando "pronto" dos jogadores atuais
-     * 1: aguardando próximo jogador
-     * 2: partida em andamento
+     * Mensagens recusadas em sequência a partir das quais a conexão é derrubada.
      */
-    public int state;
+    static final int FLOOD_DISCONNECT_REJECTIONS = 100;
 
     /**
-     * Indica estado atual de cada jogador.
-     * 0: aguardando
-     * 1: pronto para partida
-     * 2: em partida
+     * Código de fechamento das conexões derrubadas por excesso de mensagens.
      */
-    private final Map<String, Integer> playerState;
+    public static final int CLOSE_FLOODING = 4004;
+
+    /**
+     * Código de fechamento das conexões redirecionadas para a instância dona da sala; o motivo é a porta dessa instância.
+     */
+    public static final int CLOSE_REDIRECT = 4010;
+
+    /**
+     * Parâmetro da URI que identifica um espectador (/sala?espectador).
+     */
+    public static final String SPECTATOR_PARAM = "espectador";
+
+    /**
+     * Tamanho máximo do ID de um jogador.
+     */
+    static final int MAX_NAME_LENGTH = 32;
+
+    /**
+     * Tempo máximo (ms) de espera, no encerramento, pelas tarefas que as pistas estiverem rodando (como o fim de uma partida,
+     * que a grava no histórico).
+     */
+    static final int LANE_TERMINATION_MILLIS = 1000;
+
+    /**
+     * Mapeia ID dos jogadores com seus sockets (na forma de um objeto Client). Acessado por várias threads do WebSocket; deve ser um mapa concorrente.
+     * O estado de cada jogador fica na sua {@link PlayerSession}, anexada ao socket: o mapa e o anexo formam os índices
+     * nome→sessão e socket→sessão usados na admissão, ambos em tempo constante.
+     */
+    private final Map<String, WebSocket> connections;
 
     /**
      * Banco de palavras para o jogo.
      */
-    private final Set<String> wordBank;
+    private final WordBank wordBank;
+
+    /**
+     * Agendador cujas pistas executam a lógica das salas; evita bloquear as threads do WebSocket.
+     */
+    private final GameScheduler scheduler;
 
     /**
-     * Lista com palavras do banco de palavras, cuja ordem é randomizada a cada partida.
+     * Salas ativas, indexadas pelo ID informado na URI.
      */
-    private List<String> matchWords;
+    private final RoomRegistry rooms;
 
     /**
-     * Mapeia jogadores a arranjo com: [0] posição do jogador na lista matchWords; [1] quantidade de pontos do jogador; [2] quantidade de erros do jogador
+     * Métricas do servidor (conexões, salas, mensagens, latências).
      */
-    private final Map<String, Integer[]> playerStatistics;
+    private final ServerMetrics metrics;
 
-    private Stopwatch stopwatch;
+    /**
+     * Máximo de jogadores conectados ao mesmo tempo; 0 para ilimitado. Handshakes além do limite são recusados.
+     */
+    private volatile int maxConnections;
+
+    /**
+     * Histórico das partidas encerradas.
+     */
+    private final MatchHistory history;
+
+    /**
+     * Sessões cuja conexão caiu e que ainda podem ser retomadas, indexadas pelo ID do jogador. O nome fica reservado
+     * enquanto a sessão está aqui.
+     */
+    private final Map<String, PlayerSession> suspended;
+
+    /**
+     * Tempo (s) durante o qual uma sessão cuja conexão caiu pode ser retomada; 0 desliga a retomada.
+     */
+    private volatile int resumeWindowSeconds = DEFAULT_RESUME_WINDOW_SECONDS;
+
+    /**
+     * Limite de mensagens por segundo de cada jogador (balde de fichas); 0 desliga o limite.
+     */
+    private volatile int messagesPerSecond = DEFAULT_MESSAGES_PER_SECOND;
+
+    /**
+     * Mensagens de um jogador aceitas em rajada, acima do limite por segundo.
+     */
+    private volatile int messageBurst = DEFAULT_MESSAGE_BURST;
+
+    /**
+     * Diretório das instâncias do processo; null se o servidor roda em uma única instância. Definido antes do início.
+     */
+    private ShardDirectory shards;
+
+    /**
+     * Índice desta instância no diretório.
+     */
+    private int shardIndex;
 
     /**
      * Construtor.
@@ -54,60 +147,326 @@ public class Server extends WebSocketServer {
      * @param connections Indica mapa em que estão ou serão inseridos os IDs e sockets dos clientes
      */
     public Server(int port, Map<String, WebSocket> connections) {
-        super(new InetSocketAddress(port));
+        this(port, connections, MappedWordBank.fromDefaultResource());
+    }
+
+    /**
+     * Construtor.
+     *
+     * @param port Indica porta em que socket será criado
+     * @param connections Indica mapa em que estão ou serão inseridos os IDs e sockets dos clientes
+     * @param wordBank Banco de palavras usado nas partidas
+     */
+    public Server(int port, Map<String, WebSocket> connections, WordBank wordBank) {
+        this(port, connections, wordBank, new GameScheduler());
+    }
+
+    /**
+     * Construtor.
+     *
+     * @param port Indica porta em que socket será criado
+     * @param connections Indica mapa em que estão ou serão inseridos os IDs e sockets dos clientes
+     * @param wordBank Banco de palavras usado nas partidas
+     * @param scheduler Agendador que executa a lógica das salas (pistas de plataforma ou threads virtuais)
+     */
+    public Server(int port, Map<String, WebSocket> connections, WordBank wordBank, GameScheduler scheduler) {
+        this(new InetSocketAddress(port), Runtime.getRuntime().availableProcessors(), connections, wordBank, scheduler);
+    }
+
+    /**
+     * Construtor.
+     *
+     * @param address Endereço e porta em que o socket será criado
+     * @param decoders Quantidade de threads de decodificação (WebSocketWorker) da biblioteca
+     * @param connections Indica mapa em que estão ou serão inseridos os IDs e sockets dos clientes
+     * @param wordBank Banco de palavras usado nas partidas
+     * @param scheduler Agendador que executa a lógica das salas (pistas de plataforma ou threads virtuais)
+     */
+    public Server(InetSocketAddress address, int decoders, Map<String, WebSocket> connections, WordBank wordBank, GameScheduler scheduler) {
+        this(address, decoders, connections, wordBank, scheduler, MatchHistory.DISABLED);
+    }
+
+    /**
+     * Construtor.
+     *
+     * @param address Endereço e porta em que o socket será criado
+     * @param decoders Quantidade de threads de decodificação (WebSocketWorker) da biblioteca
+     * @param connections Indica mapa em que estão ou serão inseridos os IDs e sockets dos clientes
+     * @param wordBank Banco de palavras usado nas partidas
+     * @param scheduler Agendador que executa a lógica das salas (pistas de plataforma ou threads virtuais)
+     * @param history Histórico em que as partidas encerradas são gravadas
+     */
+    public Server(InetSocketAddress address, int decoders, Map<String, WebSocket> connections, WordBank wordBank, GameScheduler scheduler,
+                  MatchHistory history) {
+        this(address, decoders, connections, wordBank, scheduler, history, new ServerMetrics());
+    }
+
+    /**
+     * Construtor. Com várias instâncias no mesmo processo, o mapa de nomes, o agendador, o banco de palavras, o histórico e
+     * as métricas são compartilhados entre elas (ver {@link ShardDirectory}).
+     *
+     * @param address Endereço e porta em que o socket será criado
+     * @param decoders Quantidade de threads de decodificação (WebSocketWorker) da biblioteca
+     * @param connections Indica mapa em que estão ou serão inseridos os IDs e sockets dos clientes
+     * @param wordBank Banco de palavras usado nas partidas
+     * @param scheduler Agendador que executa a lógica das salas (pistas de plataforma ou threads virtuais)
+     * @param history Histórico em que as partidas encerradas são gravadas
+     * @param metrics Métricas do servidor
+     */
+    public Server(InetSocketAddress address, int decoders, Map<String, WebSocket> connections, WordBank wordBank, GameScheduler scheduler,
+                  MatchHistory history, ServerMetrics metrics) {
+        this(address, decoders, connections, wordBank, scheduler, history, metrics, 0);
+    }
+
+    /**
+     * Construtor.
+     *
+     * @param address Endereço e porta em que o socket será criado
+     * @param decoders Quantidade de threads de decodificação (WebSocketWorker) da biblioteca
+     * @param connections Indica mapa em que estão ou serão inseridos os IDs e sockets dos clientes
+     * @param wordBank Banco de palavras usado nas partidas
+     * @param scheduler Agendador que executa a lógica das salas (pistas de plataforma ou threads virtuais)
+     * @param history Histórico em que as partidas encerradas são gravadas
+     * @param metrics Métricas do servidor
+     * @param compressionThreshold Tamanho mínimo (bytes) das mensagens comprimidas com permessage-deflate, para os clientes
+     *                             que oferecem a extensão ({@link DeflateExtension}); 0 desliga a compressão
+     */
+    public Server(InetSocketAddress address, int decoders, Map<String, WebSocket> connections, WordBank wordBank, GameScheduler scheduler,
+                  MatchHistory history, ServerMetrics metrics, int compressionThreshold) {
+        super(address, decoders, (compressionThreshold > 0) ? DeflateExtension.drafts(compressionThreshold, metrics) : null);
         this.connections = connections;
-        this.state = 0;
-        this.playerState = new TreeMap<>();
-        this.wordBank = new HashSet<>();
-        this.playerStatistics = new TreeMap<>();
+        this.wordBank = wordBank;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        this.history = history;
+        this.rooms = new RoomRegistry(scheduler, wordBank, metrics, history);
+        this.suspended = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Chamada durante o handshake, antes da troca de protocolo. Recusa de imediato, com custo constante, as conexões que não
+     * poderiam entrar: nome inválido, nome em uso ou reservado para retomada (salvo com o token da sessão) e servidor lotado.
+     * Espectadores ({@link #isSpectator(String)}) não passam por essas verificações. Confirma o protocolo binário ao cliente que o pediu; os demais seguem no protocolo de texto.
+     *
+     * @param conn Socket do cliente
+     * @param draft Versão do protocolo WebSocket negociada
+     * @param request Requisição de handshake do cliente
+     * @throws InvalidDataException se a conexão é recusada
+     */
+    @Override
+    public ServerHandshakeBuilder onWebsocketHandshakeReceivedAsServer(WebSocket conn, Draft draft, ClientHandshake request) throws InvalidDataException {
+        String descriptor = request.getResourceDescriptor();
+        // Espectadores não têm nome nem ocupam vaga de jogador
+        if (!isSpectator(descriptor)) admitPlayer(nameFromDescriptor(descriptor), request.getFieldValue(Protocol.SESSION_HEADER));
+        ServerHandshakeBuilder response = super.onWebsocketHandshakeReceivedAsServer(conn, draft, request);
+        if (Protocol.BINARY_V1.equals(request.getFieldValue(Protocol.HEADER))) {
+            response.put(Protocol.HEADER, Protocol.BINARY_V1);
+        }
+        return response;
+    }
+
+    /**
+     * Verifica, no handshake, se o jogador pode entrar.
+     *
+     * @param name ID do jogador
+     * @param token Token de retomada enviado no handshake; null se o cliente não enviou um
+     * @throws InvalidDataException se a conexão é recusada
+     */
+    private void admitPlayer(String name, String token) throws InvalidDataException {
+        if (!isValidName(name)) {
+            throw refuse(CloseFrame.POLICY_VALIDATION, "Nome inválido: use até " + MAX_NAME_LENGTH + " letras, números, '-', '_' ou '.'.");
+        }
+        // Quem retoma a sessão já foi admitido antes: não conta para o limite nem para o nome em uso
+        if (canResume(name, token)) return;
+        int max = maxConnections;
+        if (max > 0 && connections.size() >= max) {
+            throw refuse(CloseFrame.TRY_AGAIN_LATER, "Servidor lotado. Tente novamente mais tarde.");
+        }
+        if (connections.containsKey(name)) throw refuse(4002, "Nome já utilizado por outro jogador");
+        if (suspended.containsKey(name)) throw refuse(4002, "Nome reservado para retomada de sessão");
+    }
+
+    /**
+     * Conta a recusa de uma conexão no handshake e cria a exceção que a recusa.
+     */
+    private InvalidDataException refuse(int code, String reason) {
+        metrics.connectionsRejected.increment();
+        return new InvalidDataException(code, reason);
     }
 
     /**
-     * Chamada quando jogador entra (conexão já foi estabelecida). Verifica se jogador que entrou é válido (se já estava antes no servidor), insere no mapa e transmite mensagem de entrada.
+     * Indica se o token enviado no handshake retoma uma sessão do jogador, suspensa ou ainda ligada a outra conexão.
+     *
+     * @param name ID do jogador
+     * @param token Token de retomada; null se o cliente não enviou um
+     */
+    private boolean canResume(String name, String token) {
+        if (token == null || token.isEmpty()) return false;
+        PlayerSession session = suspended.get(name);
+        if (session == null) {
+            WebSocket previous = connections.get(name);
+            session = (previous != null) ? previous.getAttachment() : null;
+        }
+        return session != null && session.matchesToken(token);
+    }
+
+    /**
+     * Chamada quando jogador entra (conexão já foi estabelecida). Se o handshake traz o token de uma sessão do jogador, retoma-a;
+     * senão, insere no mapa e o encaminha à sua sala. As recusas já foram feitas no handshake; as verificações aqui só cobrem
+     * dois handshakes simultâneos com o mesmo nome, dos quais apenas o primeiro a abrir entra.
      *
      * @param conn Client do jogador que entra; deve ser comparado com o mapa connections
      * @param handshake ?
      */
     @Override
     public void onOpen(WebSocket conn, ClientHandshake handshake) {
-        if (connections.containsValue(conn)) {
+        String descriptor = conn.getResourceDescriptor();
+        String connName = nameFromDescriptor(descriptor);
+        boolean binary = Protocol.BINARY_V1.equals(handshake.getFieldValue(Protocol.HEADER));
+        if (redirect(conn, isSpectator(descriptor) ? spectatedRoom(descriptor) : roomFromDescriptor(descriptor))) return;
+        if (isSpectator(descriptor)) {
+            Spectator spectator = new Spectator(conn, binary);
+            conn.setAttachment(spectator);
+            metrics.spectatorsOpened.increment();
+            watchRoom(spectatedRoom(descriptor), spectator);
+            return;
+        }
+        String token = handshake.getFieldValue(Protocol.SESSION_HEADER);
+        if (token != null && !token.isEmpty() && resume(conn, connName, token, binary)) return;
+        // A sessão anexada indica, em tempo constante, um socket que já entrou
+        if (conn.getAttachment() != null) {
+            metrics.connectionsRejected.increment();
             conn.send("Conexão duplicada. Desconectando todas as instâncias.");
             conn.close(4003, "Conexão duplicada.");
-        } else if (connections.containsKey(getIDfromSocket(conn))) {
-            conn.send("O nome \"" + getIDfromSocket(conn) + "\" já está em uso. Tente novamente.");
+        } else if (connections.containsKey(connName)) {
+            metrics.connectionsRejected.increment();
+            conn.send("O nome \"" + connName + "\" já está em uso. Tente novamente.");
+            conn.close(4002, "Nome já utilizado por outro jogador");
+        } else if (suspended.containsKey(connName)) {
+            metrics.connectionsRejected.increment();
+            conn.send("O nome \"" + connName + "\" está reservado para um jogador que perdeu a conexão. Tente novamente mais tarde.");
+            conn.close(4002, "Nome reservado para retomada de sessão");
+        } else if (connections.putIfAbsent(connName, conn) != null) {
+            metrics.connectionsRejected.increment();
             conn.close(4002, "Nome já utilizado por outro jogador");
         } else {
-            String connName = getIDfromSocket(conn);
-            connections.put(connName, conn);
-            playerState.put(connName, 0);
-            playerStatistics.put(connName, new Integer[]{0, 0, 0});
-            System.out.println(connName + " conectado.");
-            conn.send("-------");
-            broadcast(connName + " entrou na partida.");
-            broadcast(connections.size() + ((connections.size() <= 1) ? " jogador está conectado agora." : " jogadores estão conectados agora."));
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+            String roomId = roomFromDescriptor(descriptor);
+            PlayerSession session = new PlayerSession(connName, conn, binary, new TokenBucket(messagesPerSecond, messageBurst));
+            conn.setAttachment(session);
+            metrics.connectionsOpened.increment();
+            LOG.info("{} conectado à sala {}.", connName, roomId);
+            joinRoom(roomId, session);
+        }
+    }
+
+    /**
+     * Retoma a sessão do jogador com o novo socket, se o token confere: a sessão suspensa pela queda da conexão ou, se o servidor
+     * ainda não percebeu a queda, a sessão da conexão antiga, que é então fechada. A sala reenvia só o estado perdido.
+     *
+     * @param conn Novo socket do jogador
+     * @param name ID do jogador
+     * @param token Token de retomada enviado no handshake
+     * @param binary Indica se o novo socket negociou o protocolo binário
+     * @return false se não há sessão a retomar com esse token; o jogador segue então o caminho de entrada normal
+     */
+    private boolean resume(WebSocket conn, String name, String token, boolean binary) {
+        PlayerSession suspendedSession = suspended.get(name);
+        WebSocket previous = (suspendedSession == null) ? connections.get(name) : null;
+        PlayerSession session = (previous != null) ? previous.getAttachment() : suspendedSession;
+        if (session == null || !session.matchesToken(token)) return false;
+        if (previous == null) {
+            if (connections.putIfAbsent(name, conn) != null) return false;
+            if (!suspended.remove(name, session)) {
+                // A janela expirou entre a busca e a retomada
+                connections.remove(name, conn);
+                return false;
             }
-            conn.send("-------");
-            conn.send("Bem-vindo ao Typerace Online!");
-            conn.send("- REGRAS -");
-            conn.send("O objetivo do jogo é escrever o máximo de palavras no menor tempo possível.");
-            conn.send("Após o início da partida, os jogadores receberão palavras nas suas telas em uma mesma ordem.");
-            conn.send("Se você digitar a palavra corretamente, ganha um ponto.");
-            conn.send("A primeira pessoa a atingir 20 pontos vence a partida!");
-            conn.send("- INICIANDO O JOGO -");
-            conn.send("Quando estiver pronto para jogar, envie o comando /pronto");
-            conn.send("Se houverem mais de dois jogadores no servidor e todos estiverem prontos, uma contagem regressiva se iniciará automaticamente");
-            conn.send("Para sair do servidor, basta enviar o comando /sair");
-            conn.send("-------");
+        } else if (!connections.replace(name, previous, conn)) {
+            return false;
         }
-        if (this.state == 1) this.state = 0;
+        conn.setAttachment(session);
+        // Na troca de conexão, a antiga não conta como fechada (seu onClose não acha mais o jogador no mapa)
+        if (previous == null) metrics.connectionsOpened.increment();
+        metrics.sessionsResumed.increment();
+        if (previous != null) previous.close(4006, "Sessão retomada em outra conexão.");
+        LOG.info("{} retomou a sessão na sala {}.", name, session.getRoom().getId());
+        Room room = session.getRoom();
+        room.execute(() -> {
+            // A sala pode ter sido movida para outra instância antes do onClose da conexão antiga: entra pela dona atual
+            if (!room.resume(session, conn, binary) && !redirect(conn, room.getId())) joinRoom(room.getId(), session);
+        });
+        return true;
+    }
+
+    /**
+     * Encerra a sessão suspensa se a janela de retomada expirou sem reconexão. Roda na pista da sala.
+     *
+     * @param session Sessão suspensa
+     * @param conn Socket cuja queda suspendeu a sessão; se a sessão já foi retomada com outro, nada é feito
+     */
+    private void expire(PlayerSession session, WebSocket conn) {
+        if (session.getConnection() != conn || !suspended.remove(session.getName(), session)) return;
+        LOG.info("{} não reconectou a tempo; saindo da sala {}.", session.getName(), session.getRoom().getId());
+        Room room = session.getRoom();
+        if (room.leave(session)) rooms.remove(room);
+    }
+
+    /**
+     * Insere jogador na sala, criando-a se necessário. A entrada roda na pista da sala.
+     *
+     * @param roomId ID da sala
+     * @param session Sessão do jogador
+     */
+    private void joinRoom(String roomId, PlayerSession session) {
+        Room room = rooms.getOrCreate(roomId);
+        session.setRoom(room);
+        room.execute(() -> {
+            // A sala pode ter esvaziado e sido retirada do registro, ou movida para outra instância, entre a busca e a execução
+            if (!room.join(session) && !redirect(session.getConnection(), roomId)) joinRoom(roomId, session);
+        });
     }
 
     /**
-     * Chamada quando o jogador sai (conexão já foi encerrada). Informa motivo de saída do jogador
+     * Redireciona a conexão para a instância dona da sala, se não for esta: fecha com {@link #CLOSE_REDIRECT} e a porta
+     * da dona como motivo, e o cliente reconecta lá.
+     *
+     * @param conn Socket do cliente
+     * @param roomId ID da sala pedida pelo cliente
+     * @return true se a conexão foi redirecionada
+     */
+    private boolean redirect(WebSocket conn, String roomId) {
+        ShardDirectory directory = shards;
+        if (directory == null) return false;
+        int owner = directory.shardOf(roomId);
+        if (owner == shardIndex) return false;
+        metrics.connectionsRedirected.increment();
+        conn.close(CLOSE_REDIRECT, String.valueOf(directory.port(owner)));
+        return true;
+    }
+
+    /**
+     * Insere espectador na sala, criando-a se necessário. A entrada roda na pista da sala.
+     *
+     * @param roomId ID da sala
+     * @param spectator Espectador
+     */
+    private void watchRoom(String roomId, Spectator spectator) {
+        Room room = rooms.getOrCreate(roomId);
+        spectator.setRoom(room);
+        WebSocket conn = spectator.getConnection();
+        room.execute(() -> {
+            // O onClose pode ter lido a sala anterior e saído dela: o espectador não deve entrar nesta
+            if (!conn.isOpen()) {
+                if (room.unwatch(spectator)) rooms.remove(room);
+                return;
+            }
+            if (!room.watch(spectator) && !redirect(conn, roomId) && conn.isOpen()) watchRoom(roomId, spectator);
+        });
+    }
+
+    /**
+     * Chamada quando o jogador sai (conexão já foi encerrada). Informa motivo de saída do jogador. Se a conexão caiu (fechamento
+     * diferente de normal, saída ou derrubada pelo servidor), a sessão fica suspensa durante a janela de retomada em vez de deixar a sala.
      *
      * @param conn Client do jogador que sai; pode ser comparado com o mapa connections
      * @param code Código de erro (conferir em <a href="https://github.com/Luka967/websocket-close-codes">WebSocket Close Codes</a>)
@@ -116,55 +475,100 @@ public class Server extends WebSocketServer {
      */
     @Override
     public void onClose(WebSocket conn, int code, String reason, boolean remote) {
-        System.out.println(getIDfromSocket(conn) + " desconectado. Motivo: " + reason + " (Cód. " + code + "). " + (remote ? "Desconectado pelo cliente." : "Desconectado pelo servidor."));
-        broadcast(getIDfromSocket(conn) + " foi desconectado da partida.");
-        connections.remove(getIDfromSocket(conn));
+        Object attachment = conn.getAttachment();
+        if (attachment instanceof Spectator) {
+            Spectator spectator = (Spectator) attachment;
+            metrics.spectatorsClosed.increment();
+            Room room = spectator.getRoom();
+            room.execute(() -> {
+                if (room.unwatch(spectator)) rooms.remove(room);
+            });
+            return;
+        }
+        PlayerSession session = (PlayerSession) attachment;
+        String name = (session != null) ? session.getName() : getIDfromSocket(conn);
+        LOG.info("{} desconectado. Motivo: {} (Cód. {}). {}", name, reason, code, remote ? "Desconectado pelo cliente." : "Desconectado pelo servidor.");
+        if (!connections.remove(name, conn) || session == null) return;
+        metrics.connectionsClosed.increment();
+        Room room = session.getRoom();
+        boolean closedByServer = code >= 4000 && code <= 4999;
+        if (code == CLOSE_FLOODING || code == Broadcaster.CLOSE_SLOW_READER) metrics.connectionsKicked.increment();
+        int window = resumeWindowSeconds;
+        if (window > 0 && code != CloseFrame.NORMAL && code != CloseFrame.GOING_AWAY && !closedByServer) {
+            // A suspensão entra na pista antes de a sessão ficar visível para retomada, para que a retomada rode depois dela
+            room.execute(() -> room.suspend(session));
+            suspended.put(name, session);
+            scheduler.schedule(room.getId(), () -> expire(session, conn), window, TimeUnit.SECONDS);
+            return;
+        }
+        room.execute(() -> {
+            if (room.leave(session)) rooms.remove(room);
+        });
     }
 
     /**
-     * Chamada a cada recebimento de mensagem dos clientes. Realiza funções como início de partida e encerramento de conexão, quando não há jogo em andamento, e checa respostas quando há.
+     * Chamada a cada recebimento de mensagem dos clientes. Encaminha a mensagem para a sala do jogador, onde é tratada.
      *
      * @param conn Client do jogador que envia mensagem; pode ser comparado com o mapa connections
      * @param message String de texto enviada pelo jogador
      */
     @Override
     public void onMessage(WebSocket conn, String message) {
-        String name = getIDfromSocket(conn);
-        if (this.state != 2) {
-            if (message.equalsIgnoreCase("/pronto") && playerState.get(getIDfromSocket(conn)) == 0) {
-                broadcast(name + " está pronto para começar.");
-                playerState.put(name, 1);
-                if (this.state == 0 && connections.size() > 1 && !playerState.containsValue(0)) {
-        			try {
-                		startGame();
-            		} catch (InterruptedException e) {
-                		e.printStackTrace();
-            		}
-        		} else if (connections.size() == 1) {
-                    broadcast("Pelo menos dois jogadores são necessários para iniciar partida.");
-                }
-            } else if (message.equalsIgnoreCase("/sair")) {
-                conn.close(1001, "Solicitação do jogador");
-            }
-        } else {
-            if (message.equals(matchWords.get(playerStatistics.get(name)[0]))) {
-                playerStatistics.get(name)[1] += 1;
-                conn.send(":correct:" + playerStatistics.get(name)[1]);
-                conn.send("Acertou!");
-            } else {
-                playerStatistics.get(name)[2] += 1;
-                conn.send(":errors:" + playerStatistics.get(name)[2]);
-                conn.send("Errou.");
-            }
-            if (playerStatistics.get(name)[1] >= 20) {
-                endGame();
-                return;
-            }
-            playerStatistics.get(name)[0] += 1;
-            conn.send("-------");
-            conn.send("Palavra " + (playerStatistics.get(name)[0] + 1) + ":");
-            conn.send(matchWords.get(playerStatistics.get(name)[0]));
+        Object attachment = conn.getAttachment();
+        // Mensagens de espectadores são ignoradas
+        if (!(attachment instanceof PlayerSession)) return;
+        PlayerSession session = (PlayerSession) attachment;
+        if (!admit(conn, session)) return;
+        long receivedAt = System.nanoTime();
+        metrics.messagesIn.increment();
+        Room room = session.getRoom();
+        room.execute(() -> {
+            room.onMessage(session, message, receivedAt);
+            metrics.messageLatency.record(System.nanoTime() - receivedAt);
+        });
+    }
+
+    /**
+     * Decide se a mensagem do jogador é tratada. Descarta a mensagem se o jogador passou do limite de taxa ou se a fila de saída
+     * da conexão está acumulando (a resposta só aumentaria o atraso); derruba a conexão se o excesso persiste (código 4004)
+     * ou se a fila de saída passou do limite de desconexão (código 4005). Roda na thread do WebSocket, sem travas.
+     *
+     * @param conn Socket do jogador
+     * @param session Sessão do jogador
+     * @return true se a mensagem deve ser encaminhada à sala
+     */
+    private boolean admit(WebSocket conn, PlayerSession session) {
+        int depth = Broadcaster.queueDepth(conn);
+        if (depth >= Broadcaster.DEFAULT_DISCONNECT_QUEUE_DEPTH) {
+            conn.closeConnection(Broadcaster.CLOSE_SLOW_READER, "Cliente não está lendo as mensagens.");
+            return false;
+        }
+        // A ficha é consumida mesmo com a fila acumulada, para que o excesso continue contando para o limite de taxa
+        boolean allowed = session.getInbound().tryAcquire();
+        boolean slow = depth >= Broadcaster.DEFAULT_SLOW_QUEUE_DEPTH;
+        if (allowed && !slow) return true;
+        metrics.messagesThrottled.increment();
+        // Descarte só pela fila acumulada: o jogador não passou do limite, e um aviso só aumentaria a fila
+        if (allowed) return false;
+        int rejected = session.getInbound().getRejectedInARow();
+        if (rejected >= FLOOD_DISCONNECT_REJECTIONS) {
+            conn.close(CLOSE_FLOODING, "Excesso de mensagens.");
+        } else if (rejected == 1 && !slow) {
+            MessageBatch.forSession(session).line("Você está enviando mensagens rápido demais; algumas foram descartadas.").sendTo(session);
         }
+        return false;
+    }
+
+    /**
+     * Chamada a cada recebimento de quadro binário ({@link Protocol}) dos clientes. Respostas são tratadas como as mensagens de texto.
+     *
+     * @param conn Client do jogador que envia mensagem
+     * @param message Quadro binário enviado pelo jogador
+     */
+    @Override
+    public void onMessage(WebSocket conn, ByteBuffer message) {
+        String answer = Protocol.decodeAnswer(message);
+        if (answer != null) onMessage(conn, answer);
     }
 
     /**
@@ -175,6 +579,12 @@ public class Server extends WebSocketServer {
      */
     @Override
     public void onError(WebSocket conn, Exception ex) {
+        if (conn == null) {
+            // Erro do próprio servidor (ex.: porta em uso), não de um cliente
+            LOG.error("Erro no servidor.", ex);
+            return;
+        }
+        LOG.warn("Erro na conexão {}: {}", conn.getRemoteSocketAddress(), ex.toString());
         conn.close(4001, "Lançamento da exceção " + ex.toString());
     }
 
@@ -183,161 +593,199 @@ public class Server extends WebSocketServer {
      */
     @Override
     public void onStart() {
-        System.out.println("Servidor iniciado com sucesso na porta " + this.getPort() + ".");
-        insertWords();
-        this.matchWords = new ArrayList<>(wordBank);
+        LOG.info("Servidor iniciado com sucesso na porta {}. Banco com {} palavras. Salas em {}.", getPort(), wordBank.size(),
+                scheduler.isVirtual() ? "threads virtuais" : "pistas de plataforma");
+    }
+
+    public ServerMetrics getMetrics() {
+        return metrics;
     }
 
     /**
-     * Extrai ID do jogador inserido na URI onde o socket (cliente) se conecta.
+     * Fixa a semente da próxima partida de uma sala, para reproduzir uma partida anterior.
      *
-     * @param conn Cliente do jogador buscado; tem sua URI extraída
+     * @param roomId ID da sala
+     * @param seed Semente registrada no início da partida a ser reproduzida
+     * @return false se a sala não existe
      */
-    private String getIDfromSocket(WebSocket conn) {
-        int start = conn.getResourceDescriptor().indexOf("/", 5) + 2;
-        return conn.getResourceDescriptor().substring(start);
-    }
-
-    /**
-     * Verifica se há mais de um jogador e se todos estão prontos. Caso positivo, aguarda 5 segundos e inicia a partida.
-     */
-    public void startGame() throws InterruptedException {
-        System.out.println("Iniciando contagem regressiva para início de partida.");
-        broadcast("Iniciando partida em: ");
-        Thread.sleep(1000);
-        broadcast("5");
-        Thread.sleep(1000);
-        broadcast("4");
-        Thread.sleep(1000);
-        broadcast("3");
-        Thread.sleep(1000);
-        broadcast("2");
-        Thread.sleep(1000);
-        broadcast("1");
-        Thread.sleep(1000);
-        this.state = 2;
-        playerState.replaceAll((k, v) -> 2);
-        System.out.println("Iniciando partida.");
-        broadcast("Iniciando partida.");
-        Collections.shuffle(this.matchWords);
-        stopwatch = Stopwatch.createStarted();
-        broadcast("-------");
-        broadcast("Palavra 1:");
-        broadcast(matchWords.get(0));
-    }
-
-    private void endGame() {
-        stopwatch.stop();
-        this.state = 0;
-        for (Map.Entry<String, Integer> e : playerState.entrySet()) {
-            e.setValue(0);
+    public boolean setNextSeed(String roomId, long seed) {
+        Room room = rooms.get(roomId);
+        if (room == null) return false;
+        room.execute(() -> room.setNextSeed(seed));
+        return true;
+    }
+
+    /**
+     * Inclui esta instância no diretório das instâncias do processo. Deve ser chamada antes do início.
+     *
+     * @param directory Diretório das instâncias
+     * @param shard Índice desta instância
+     */
+    public void setShard(ShardDirectory directory, int shard) {
+        this.shards = directory;
+        this.shardIndex = shard;
+        rooms.setShard(directory, shard);
+        directory.register(shard, this);
+    }
+
+    /**
+     * Diretório das instâncias do processo; null se o servidor roda em uma única instância.
+     */
+    public ShardDirectory getShardDirectory() {
+        return shards;
+    }
+
+    /**
+     * Entrega uma sala desta instância a outra ({@link ShardDirectory#move(String, int)}), se não houver partida nem contagem
+     * regressiva em andamento nela. A sala passa a pertencer ao destino, e seus jogadores e espectadores são redirecionados.
+     *
+     * @param roomId ID da sala
+     * @param target Índice da instância de destino
+     * @return Resultado da mudança: false se a sala estava em partida e não foi movida
+     */
+    CompletableFuture<Boolean> releaseRoom(String roomId, int target) {
+        Room room = rooms.get(roomId);
+        if (room == null) {
+            shards.assign(roomId, target);
+            return CompletableFuture.completedFuture(true);
         }
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        room.execute(() -> {
+            if (!room.isIdle()) {
+                result.complete(false);
+                return;
+            }
+            shards.assign(roomId, target);
+            room.evacuate(CLOSE_REDIRECT, String.valueOf(shards.port(target)));
+            rooms.remove(room);
+            LOG.info("Sala {} movida para a instância {}.", roomId, target);
+            result.complete(true);
+        });
+        return result;
+    }
 
-        List<Map.Entry<String, Integer>> leaderboardEntries = new LinkedList<>();
-        for (Map.Entry<String, Integer[]> e : playerStatistics.entrySet()) {
-            leaderboardEntries.add(new Map.Entry<String, Integer>() {
-                @Override
-                public String getKey() {
-                    return e.getKey();
-                }
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
 
-                @Override
-                public Integer getValue() {
-                    return e.getValue()[1];
-                }
+    public void setResumeWindowSeconds(int resumeWindowSeconds) {
+        this.resumeWindowSeconds = resumeWindowSeconds;
+    }
 
-                @Override
-                public Integer setValue(Integer integer) {
-                    return null;
+    /**
+     * Define o tamanho das partidas automáticas da sala de espera ({@link Matchmaker#LOBBY_ROOM}) e a espera máxima na fila.
+     *
+     * @param matchSize Quantidade de jogadores por partida
+     * @param maxWaitSeconds Espera máxima (s) antes de completar a partida com menos jogadores ou de outros níveis
+     */
+    public void setMatchmaking(int matchSize, int maxWaitSeconds) {
+        rooms.setMatchmaking(matchSize, maxWaitSeconds);
+    }
+
+    /**
+     * Define o limite de taxa das mensagens dos jogadores que entrarem a partir de agora.
+     *
+     * @param messagesPerSecond Mensagens por segundo; 0 desliga o limite
+     * @param messageBurst Mensagens aceitas em rajada
+     */
+    public void setMessageRateLimit(int messagesPerSecond, int messageBurst) {
+        this.messagesPerSecond = messagesPerSecond;
+        this.messageBurst = messageBurst;
+    }
+
+    /**
+     * Encerra o servidor: fecha as conexões (esperando até o tempo máximo) enquanto as pistas ainda tratam as saídas
+     * dos jogadores, e só então encerra o agendador de tarefas, espera as tarefas em andamento nas pistas e grava o restante
+     * do histórico.
+     *
+     * @param timeout Tempo máximo (ms) de espera pelo fechamento das conexões
+     */
+    @Override
+    public void stop(int timeout) throws InterruptedException {
+        try {
+            super.stop(timeout);
+        } finally {
+            // Com várias instâncias, a última a parar encerra o que é compartilhado
+            if (shards == null || shards.release()) {
+                scheduler.shutdown();
+                try {
+                    // Um fim de partida já em andamento ainda grava no histórico
+                    if (!scheduler.awaitTermination(LANE_TERMINATION_MILLIS, TimeUnit.MILLISECONDS)) {
+                        LOG.warn("Pistas ainda ocupadas após {} ms; fechando o histórico mesmo assim.", LANE_TERMINATION_MILLIS);
+                    }
+                } finally {
+                    history.close();
                 }
-            });
+            }
         }
-        leaderboardEntries.sort(Map.Entry.comparingByValue(Comparator.reverseOrder()));
-
-        broadcast("-------");
-        broadcast("VITÓRIA DE " + leaderboardEntries.get(0).getKey().toUpperCase() + "!");
-        //broadcast(":informStats:");
-        broadcast("-------");
-        broadcast("Placar:");
-        int i = 1;
-        for (Map.Entry<String, Integer> e : leaderboardEntries) {
-            broadcast(i++ + ": " + e.getKey() + " (" + e.getValue() + " pontos, " + playerStatistics.get(e.getKey())[2] + " erros)");
+    }
+
+    /**
+     * Extrai ID do jogador inserido na URI onde o socket (cliente) se conecta.
+     *
+     * @param conn Cliente do jogador buscado; tem sua URI extraída
+     */
+    private String getIDfromSocket(WebSocket conn) {
+        return nameFromDescriptor(conn.getResourceDescriptor());
+    }
+
+    /**
+     * Extrai ID do jogador de uma URI na forma /sala/nome ou /nome.
+     *
+     * @param descriptor Caminho da URI do jogador
+     */
+    static String nameFromDescriptor(String descriptor) {
+        return descriptor.substring(descriptor.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Indica se o ID do jogador é aceito: de 1 a {@link #MAX_NAME_LENGTH} letras ou números ASCII, '-', '_' ou '.'.
+     *
+     * @param name ID do jogador
+     */
+    static boolean isValidName(String name) {
+        if (name.isEmpty() || name.length() > MAX_NAME_LENGTH) return false;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean allowed = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '_' || c == '.';
+            if (!allowed) return false;
         }
+        return true;
+    }
 
-        for (Map.Entry<String, Integer[]> e : playerStatistics.entrySet()) {
-            e.setValue(new Integer[]{0, 0, 0});
+    /**
+     * Indica se a URI é de um espectador: traz o parâmetro {@link #SPECTATOR_PARAM} (sem valor, =1 ou =true).
+     *
+     * @param descriptor Caminho da URI do cliente
+     */
+    static boolean isSpectator(String descriptor) {
+        int query = descriptor.indexOf('?');
+        if (query < 0) return false;
+        for (String param : descriptor.substring(query + 1).split("&")) {
+            if (param.equals(SPECTATOR_PARAM) || param.equals(SPECTATOR_PARAM + "=1") || param.equals(SPECTATOR_PARAM + "=true")) return true;
         }
+        return false;
+    }
 
-        System.out.println("Encerrando partida. Ganhador: " + leaderboardEntries.get(0).getKey() + ". Tempo: " + stopwatch.toString() + ".");
-        broadcast("Tempo decorrido da partida: " + stopwatch.toString());
-        broadcast("-------");
-        broadcast("Para iniciar outra partida, digite /pronto e aguarde os outros jogadores.");
-    }
-
-    /**
-     * Insere palavras no banco de palavras. Acessar gerador de palavras <a href="https://www.palabrasaleatorias.com/palavras-aleatorias.php?fs=10&fs2=0&Submit=Nova+palavra">aqui</a> ou <a href="https://randomwordsgen.com/palavras-aleatorias">aqui</a>.
-     */
-    private void insertWords() {
-        wordBank.add("Palavras"); wordBank.add("Banco"); wordBank.add("Computação"); wordBank.add("Redes"); wordBank.add("Sistema"); wordBank.add("Informações");
-        wordBank.add("Marte"); wordBank.add("Acoplado");wordBank.add("Cavalete");wordBank.add("Bilhete");wordBank.add("Beterraba");wordBank.add("Ampliar");
-        wordBank.add("Capital"); wordBank.add("Adorável");wordBank.add("Tapa");wordBank.add("Vinho");wordBank.add("Veneza");wordBank.add("Vão");
-        wordBank.add("Mosaico"); wordBank.add("Escape");wordBank.add("Nogueira");wordBank.add("Azul");wordBank.add("Feridos");wordBank.add("Prisioneiro");
-        wordBank.add("Caderno"); wordBank.add("Marcha");wordBank.add("Escritor");wordBank.add("Grade");wordBank.add("Lobisomem");wordBank.add("Piranha");
-        wordBank.add("Vulcão"); wordBank.add("Pistola");wordBank.add("Camping");wordBank.add("Revistas");wordBank.add("Vender");wordBank.add("Dobrável");
-        wordBank.add("Diamante"); wordBank.add("Aldeola");wordBank.add("Valsa");wordBank.add("Bumbum");wordBank.add("Chicote");wordBank.add("Esmeralda");
-        wordBank.add("Queimar"); wordBank.add("Cicatriz");wordBank.add("Cabo");wordBank.add("Cenoura");wordBank.add("Tijolo");wordBank.add("Fátima");
-        wordBank.add("Conde"); wordBank.add("Conta");wordBank.add("Cinto");wordBank.add("Bazuca");wordBank.add("Troféu");wordBank.add("Noiva");
-        wordBank.add("Gotejamento"); wordBank.add("Assistente");wordBank.add("Artista");wordBank.add("Crocodilo");wordBank.add("Giratória");wordBank.add("Ritmo");
-        wordBank.add("Beijos"); wordBank.add("Indígena");wordBank.add("Piso");wordBank.add("Peludo");wordBank.add("Jogos");wordBank.add("Passeio");
-        wordBank.add("Silicone"); wordBank.add("Cinquenta");wordBank.add("Costureira");wordBank.add("Rooftop");wordBank.add("Veleiro");wordBank.add("Assassinato");
-        wordBank.add("Botinha"); wordBank.add("Chaleira");wordBank.add("Semeadura");wordBank.add("Direito");wordBank.add("Universitário");wordBank.add("Órfão");
-        wordBank.add("Manicure"); wordBank.add("Arroto");wordBank.add("Botoadura");wordBank.add("Bocal");wordBank.add("Jato");wordBank.add("Trabalhador");
-        wordBank.add("Fundação"); wordBank.add("Procurar");wordBank.add("Espingarda");wordBank.add("Fatiado");wordBank.add("Porta-estandarte");wordBank.add("Voz");
-        wordBank.add("Guarda-roupa"); wordBank.add("Atirar");wordBank.add("Micro-ondas");wordBank.add("Esculpir");wordBank.add("Safira");wordBank.add("Remover");
-        wordBank.add("Verruga"); wordBank.add("Vacina");wordBank.add("Coronavírus");wordBank.add("Recital");wordBank.add("Seringa");wordBank.add("Contagem");
-        wordBank.add("Miar"); wordBank.add("Falsificar");wordBank.add("Polígono");wordBank.add("Vestibulando");wordBank.add("Sinal");wordBank.add("Semaninha");
-        wordBank.add("Hibernar"); wordBank.add("Pesado");wordBank.add("Facção");wordBank.add("Tubo");wordBank.add("Arco");wordBank.add("Adicionar");
-        wordBank.add("Bolso"); wordBank.add("Transpirar");wordBank.add("Cantores");wordBank.add("Aluno");wordBank.add("Coringa");wordBank.add("Cornija");
-        wordBank.add("Quadro"); wordBank.add("Estresse");wordBank.add("Cobertura");wordBank.add("Pai");wordBank.add("Vez");wordBank.add("Ambientalismo");
-        wordBank.add("Empurre"); wordBank.add("Bravo");wordBank.add("Supermercado");wordBank.add("Coador");wordBank.add("Ateu");wordBank.add("Muleteiro");
-        wordBank.add("Atriz"); wordBank.add("Nariz");wordBank.add("Revista");wordBank.add("Barretina");wordBank.add("Ninja");wordBank.add("Hospitalidade");
-        wordBank.add("Defeito"); wordBank.add("Prego");wordBank.add("Pescador");wordBank.add("Pesos");wordBank.add("Guia");wordBank.add("Brilhante");
-        wordBank.add("Pugilista"); wordBank.add("Especial");wordBank.add("Pausa");wordBank.add("Menina");wordBank.add("Desalento");wordBank.add("Lugar");
-        wordBank.add("Lamente"); wordBank.add("Regojizo");wordBank.add("Nome");wordBank.add("Feio");wordBank.add("Arca");wordBank.add("Dipstick");
-        wordBank.add("Paciente"); wordBank.add("Quadrado");wordBank.add("Sismo");wordBank.add("Assunto");wordBank.add("Utilitário");wordBank.add("Ciclo");
-        wordBank.add("Incorporar"); wordBank.add("Supremo");wordBank.add("Colher de sopa");wordBank.add("Pressione");wordBank.add("Junta");wordBank.add("Bonito");
-        wordBank.add("Advogada"); wordBank.add("Baixa");wordBank.add("Associado");wordBank.add("Ousar");wordBank.add("Aparecer");wordBank.add("Tom");
-        wordBank.add("Gravíssimo"); wordBank.add("Desfalcar");wordBank.add("Hotel");wordBank.add("Incapaz");wordBank.add("Seguro");wordBank.add("Aplique");
-        wordBank.add("Lugar algum"); wordBank.add("Relatório");wordBank.add("Refeitório");wordBank.add("Asiática");wordBank.add("Feliz");wordBank.add("Suponha");
-        wordBank.add("Ameaçar"); wordBank.add("Desconhecido");wordBank.add("Acessibilidade");wordBank.add("O negócio");wordBank.add("Contra");wordBank.add("Pintura");
-        wordBank.add("A maioria"); wordBank.add("Conduta");wordBank.add("Além");wordBank.add("Uma");wordBank.add("Católico");wordBank.add("Habilitar");
-        wordBank.add("Encorajar"); wordBank.add("Óvulo");wordBank.add("Gangue");wordBank.add("Dedetizadora");wordBank.add("Ribeirão");wordBank.add("Fisionomia");
-        wordBank.add("Raro"); wordBank.add("Ferro");wordBank.add("Quieto");wordBank.add("Estimativa");wordBank.add("Quente");wordBank.add("Colega");
-        wordBank.add("Call center"); wordBank.add("Quadrático");wordBank.add("Exposição");wordBank.add("Fonte");wordBank.add("Triangulação");wordBank.add("Forte");
-        wordBank.add("Cerveja"); wordBank.add("Critério");wordBank.add("Boca");wordBank.add("Admissionalidade");wordBank.add("Sombrio");wordBank.add("Bolo");
-        wordBank.add("Orar"); wordBank.add("Civil");wordBank.add("Revirar");wordBank.add("Impeachment");wordBank.add("Caracterização");wordBank.add("Auto-escola");
-        wordBank.add("Profundidade"); wordBank.add("Batalha");wordBank.add("Analisar");wordBank.add("Doença");wordBank.add("Familiar");wordBank.add("Orgulho");
-        wordBank.add("Ocidental"); wordBank.add("Engenharia");wordBank.add("Legítimo");wordBank.add("Concentração");wordBank.add("Primo");wordBank.add("Desenvoltura");
-        wordBank.add("Três"); wordBank.add("Ajustamento");wordBank.add("De madeira");wordBank.add("Veterano");wordBank.add("De ativos");wordBank.add("Diretamente");
-        wordBank.add("Absorver"); wordBank.add("Testemunho");wordBank.add("Vínculo");wordBank.add("Culpa");wordBank.add("Especialidade");wordBank.add("Danificar");
-        wordBank.add("Defensiva"); wordBank.add("Admissão");wordBank.add("Campeão");wordBank.add("A respeito de");wordBank.add("Fardo");wordBank.add("Fabricante");
-        wordBank.add("Visita"); wordBank.add("Expectativa");wordBank.add("Mineirinho");wordBank.add("Avançado");wordBank.add("Carta");wordBank.add("Grito");
-        wordBank.add("Alta"); wordBank.add("Envolver");wordBank.add("Primeiro");wordBank.add("Justo");wordBank.add("Caro");wordBank.add("Convicção");
-        wordBank.add("Informar"); wordBank.add("Doloroso");wordBank.add("Crucial");wordBank.add("Relativo");wordBank.add("Esforço");wordBank.add("Marca");
-        wordBank.add("Dependente"); wordBank.add("Narrativa");wordBank.add("Aborto");wordBank.add("Indicação");wordBank.add("Guia de turismo");wordBank.add("Capital financeiro");
-        wordBank.add("Solução"); wordBank.add("Universal");wordBank.add("Terra");wordBank.add("Gastar");wordBank.add("Mover");wordBank.add("Professor");
-        wordBank.add("Avô"); wordBank.add("Calcular");wordBank.add("Tradicional");wordBank.add("Exibição");wordBank.add("Comprar");wordBank.add("Acompanhar");
-        wordBank.add("Ouvir"); wordBank.add("Posso");wordBank.add("Confiança");wordBank.add("Demonstração");wordBank.add("Redação");wordBank.add("Pessoal");
-        wordBank.add("Leitor"); wordBank.add("Raramente");wordBank.add("Absoluto");wordBank.add("Particularmente");wordBank.add("Mal");wordBank.add("Descrever");
-        wordBank.add("Capaz"); wordBank.add("Fotografia");wordBank.add("Mordida");wordBank.add("Rebocando");wordBank.add("Capitalismo");wordBank.add("Salário");
-        wordBank.add("Digital"); wordBank.add("Sem teto");wordBank.add("Pesquisa");wordBank.add("Rosto");wordBank.add("Óleo");wordBank.add("Longe");
-        wordBank.add("Decidir"); wordBank.add("Progresso");wordBank.add("Escalar");wordBank.add("Construir");wordBank.add("Computado");wordBank.add("Revolução");
-        wordBank.add("Cozinhar"); wordBank.add("Colocar");wordBank.add("Ficção");wordBank.add("Desenhar");wordBank.add("Cara");wordBank.add("Responder");
-        wordBank.add("Casa"); wordBank.add("Embrulho");wordBank.add("Ação");wordBank.add("Conceito");wordBank.add("Pós-moderno");wordBank.add("Estético");
-        wordBank.add("Casual"); wordBank.add("Calor");wordBank.add("Estrutura");wordBank.add("Medo");wordBank.add("Quero");wordBank.add("Baile");
-        wordBank.add("Zona leste"); wordBank.add("Profundo");wordBank.add("Banimento");wordBank.add("Velho");wordBank.add("Raridade");wordBank.add("Acidez");
-        wordBank.add("Por quê"); wordBank.add("Limitação");wordBank.add("Representar");wordBank.add("Em si");wordBank.add("Andrógeno");wordBank.add("Alternativo");
-        wordBank.add("Direto"); wordBank.add("Formol");wordBank.add("Capataz");wordBank.add("Escolha");wordBank.add("Esquema");wordBank.add("Míssil");
-        wordBank.add("Agora"); wordBank.add("Distinto");wordBank.add("Construção");wordBank.add("Ocupar");wordBank.add("Ambientes");wordBank.add("Mais");
+    /**
+     * Extrai ID da sala assistida de uma URI de espectador na forma /sala?espectador. Usa a sala padrão caso a URI não informe uma.
+     *
+     * @param descriptor Caminho da URI do espectador
+     */
+    static String spectatedRoom(String descriptor) {
+        int query = descriptor.indexOf('?');
+        String path = (query < 0) ? descriptor : descriptor.substring(0, query);
+        while (path.endsWith("/")) path = path.substring(0, path.length() - 1);
+        return path.isEmpty() ? DEFAULT_ROOM : path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Extrai ID da sala de uma URI na forma /sala/nome ou /nome. Usa a sala padrão caso a URI não informe uma.
+     *
+     * @param descriptor Caminho da URI do jogador
+     */
+    static String roomFromDescriptor(String descriptor) {
+        int last = descriptor.lastIndexOf('/');
+        return (last > 0) ? descriptor.substring(1, last) : DEFAULT_ROOM;
     }
 }
@@ -0,0 +1,328 @@
+package br.usp.each.typerace.server;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketImpl;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Configuração de inicialização do servidor. Os valores vêm, em ordem de prioridade, das opções da linha de comando
+ * (--nome=valor), de um arquivo de propriedades indicado por --config (nome=valor) e dos padrões abaixo.
+ */
+public class ServerConfig {
+
+    public static final String USAGE = "Uso: ServerMain [--config=arquivo.properties] [--porta=8080] [--decodificadores=N]"
+            + " [--tcp-no-delay=true] [--reuse-addr=true] [--buffer-recepcao=16384] [--timeout-conexao=60]"
+            + " [--max-conexoes=0] [--palavras=arquivo.txt] [--threads-virtuais] [--porta-metricas=8081]"
+            + " [--timeout-encerramento=5000] [--historico=historico/partidas.log] [--janela-retomada=30]"
+            + " [--mensagens-por-segundo=10] [--rajada-mensagens=20] [--tamanho-partida=4] [--espera-maxima=10]"
+            + " [--instancias=1] [--compressao-minima=256]";
+
+    private int port = 8080;
+
+    /**
+     * Threads de decodificação (WebSocketWorker) do Java-WebSocket; 0 para o padrão da biblioteca (uma por núcleo).
+     */
+    private int decoders = 0;
+
+    private boolean tcpNoDelay = true;
+
+    private boolean reuseAddr = true;
+
+    /**
+     * Tamanho (bytes) do buffer de recepção dos sockets e de leitura de cada conexão (WebSocketImpl.RCVBUF).
+     */
+    private int receiveBufferSize = WebSocketImpl.RCVBUF;
+
+    /**
+     * Intervalo (s) de verificação de conexões perdidas por ping/pong; 0 desliga a verificação.
+     */
+    private int connectionLostTimeout = 60;
+
+    /**
+     * Máximo de jogadores conectados ao mesmo tempo; 0 para ilimitado.
+     */
+    private int maxConnections = 0;
+
+    private String wordFile;
+
+    private boolean virtualThreads;
+
+    /**
+     * Porta do endpoint HTTP local de métricas; 0 desliga o endpoint.
+     */
+    private int metricsPort = MetricsEndpoint.DEFAULT_PORT;
+
+    /**
+     * Tempo máximo (ms) de espera pelo fechamento das conexões no encerramento.
+     */
+    private int shutdownTimeout = 5000;
+
+    /**
+     * Arquivo do histórico de partidas; vazio desliga o histórico.
+     */
+    private String historyFile = "historico/partidas.log";
+
+    /**
+     * Tempo (s) durante o qual um jogador cuja conexão caiu pode retomar a sessão; 0 desliga a retomada.
+     */
+    private int resumeWindowSeconds = Server.DEFAULT_RESUME_WINDOW_SECONDS;
+
+    /**
+     * Limite de mensagens por segundo de cada jogador; 0 desliga o limite.
+     */
+    private int messagesPerSecond = Server.DEFAULT_MESSAGES_PER_SECOND;
+
+    private int messageBurst = Server.DEFAULT_MESSAGE_BURST;
+
+    /**
+     * Jogadores por partida automática, formada pela fila da sala de espera.
+     */
+    private int matchSize = Matchmaker.DEFAULT_MATCH_SIZE;
+
+    /**
+     * Espera máxima (s) na fila antes de completar a partida com menos jogadores ou de outros níveis.
+     */
+    private int maxWaitSeconds = Matchmaker.DEFAULT_MAX_WAIT_SECONDS;
+
+    /**
+     * Quantidade de instâncias do servidor no processo, cada uma com o próprio seletor, nas portas porta a porta + instancias - 1.
+     */
+    private int shards = 1;
+
+    /**
+     * Tamanho mínimo (bytes) das mensagens comprimidas com permessage-deflate; 0 desliga a compressão.
+     */
+    private int compressionThreshold = DeflateExtension.DEFAULT_THRESHOLD;
+
+    /**
+     * Lê a configuração das opções da linha de comando e, se indicado, do arquivo de propriedades.
+     * Um argumento sem "--" é tratado como o arquivo de palavras, por compatibilidade.
+     *
+     * @param args Argumentos passados pela linha de comando
+     * @throws IllegalArgumentException se uma opção é desconhecida ou tem valor inválido
+     */
+    public static ServerConfig fromArgs(String[] args) throws IOException {
+        Properties options = new Properties();
+        String configFile = null;
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                options.setProperty("palavras", arg);
+                continue;
+            }
+            int eq = arg.indexOf('=');
+            String name = (eq < 0) ? arg.substring(2) : arg.substring(2, eq);
+            String value = (eq < 0) ? "true" : arg.substring(eq + 1);
+            if (name.equals("config")) configFile = value;
+            else options.setProperty(name, value);
+        }
+
+        ServerConfig config = new ServerConfig();
+        if (configFile != null) {
+            Properties file = new Properties();
+            try (Reader reader = Files.newBufferedReader(Paths.get(configFile), StandardCharsets.UTF_8)) {
+                file.load(reader);
+            }
+            config.apply(file);
+        }
+        config.apply(options);
+        config.validate();
+        return config;
+    }
+
+    /**
+     * Verifica as opções que dependem umas das outras.
+     *
+     * @throws IllegalArgumentException se as portas das instâncias não cabem no intervalo ou conflitam com a de métricas
+     */
+    void validate() {
+        if (shards == 1) return;
+        if (port == 0 || port + shards - 1 > 65535) {
+            throw new IllegalArgumentException("Com várias instâncias, a porta deve ser fixa e as portas " + port + " a " + (port + shards - 1) + " devem ser válidas");
+        }
+        if (metricsPort >= port && metricsPort < port + shards) {
+            throw new IllegalArgumentException("A porta de métricas " + metricsPort + " conflita com as portas das instâncias (" + port + " a "
+                    + (port + shards - 1) + "); use --porta-metricas");
+        }
+    }
+
+    /**
+     * Aplica as propriedades informadas sobre os valores atuais.
+     *
+     * @param properties Pares nome=valor, com os nomes das opções sem "--"
+     */
+    void apply(Properties properties) {
+        for (String name : properties.stringPropertyNames()) {
+            String value = properties.getProperty(name).trim();
+            switch (name) {
+                case "porta": port = parseInt(name, value, 0, 65535); break;
+                case "decodificadores": decoders = parseInt(name, value, 0, 1024); break;
+                case "tcp-no-delay": tcpNoDelay = parseBoolean(name, value); break;
+                case "reuse-addr": reuseAddr = parseBoolean(name, value); break;
+                case "buffer-recepcao": receiveBufferSize = parseInt(name, value, 1024, Integer.MAX_VALUE); break;
+                case "timeout-conexao": connectionLostTimeout = parseInt(name, value, 0, Integer.MAX_VALUE); break;
+                case "max-conexoes": maxConnections = parseInt(name, value, 0, Integer.MAX_VALUE); break;
+                case "palavras": wordFile = value; break;
+                case "threads-virtuais": virtualThreads = parseBoolean(name, value); break;
+                case "porta-metricas": metricsPort = parseInt(name, value, 0, 65535); break;
+                case "timeout-encerramento": shutdownTimeout = parseInt(name, value, 0, Integer.MAX_VALUE); break;
+                case "historico": historyFile = value; break;
+                case "janela-retomada": resumeWindowSeconds = parseInt(name, value, 0, 3600); break;
+                case "mensagens-por-segundo": messagesPerSecond = parseInt(name, value, 0, 1_000_000); break;
+                case "rajada-mensagens": messageBurst = parseInt(name, value, 1, 1_000_000); break;
+                case "tamanho-partida": matchSize = parseInt(name, value, 2, 1000); break;
+                case "espera-maxima": maxWaitSeconds = parseInt(name, value, 0, 3600); break;
+                case "instancias": shards = parseInt(name, value, 1, 256); break;
+                case "compressao-minima": compressionThreshold = parseInt(name, value, 0, Integer.MAX_VALUE); break;
+                default: throw new IllegalArgumentException("Opção desconhecida: " + name);
+            }
+        }
+    }
+
+    /**
+     * Cria o servidor com esta configuração (ainda não iniciado), em uma única instância.
+     */
+    public Server createServer() throws IOException {
+        return createServers().get(0);
+    }
+
+    /**
+     * Cria as instâncias do servidor com esta configuração (ainda não iniciadas). Com mais de uma instância, elas escutam em
+     * portas consecutivas a partir da porta configurada, dividem os decodificadores e compartilham um {@link ShardDirectory},
+     * o mapa de nomes, as pistas, o banco de palavras, o histórico e as métricas.
+     */
+    public List<Server> createServers() throws IOException {
+        WordBank wordBank = (wordFile != null) ? MappedWordBank.open(Paths.get(wordFile)) : MappedWordBank.fromDefaultResource();
+        GameScheduler scheduler;
+        if (virtualThreads && GameScheduler.virtualThreadsAvailable()) {
+            scheduler = GameScheduler.virtualThreads();
+        } else {
+            if (virtualThreads) System.out.println("Threads virtuais exigem Java 21 ou maior; usando pistas de plataforma.");
+            scheduler = new GameScheduler();
+        }
+        // Estático na biblioteca: vale para todas as conexões criadas a partir daqui
+        WebSocketImpl.RCVBUF = receiveBufferSize;
+        int decoderCount = (decoders > 0) ? decoders : Runtime.getRuntime().availableProcessors();
+        MatchHistory history = historyFile.isEmpty() ? MatchHistory.DISABLED : FileMatchHistory.open(Paths.get(historyFile));
+        Map<String, WebSocket> connections = new ConcurrentHashMap<>();
+        ServerMetrics metrics = new ServerMetrics();
+        ShardDirectory directory = (shards > 1) ? new ShardDirectory(shards, port) : null;
+        List<Server> servers = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            Server server = new Server(new InetSocketAddress(port + i), Math.max(1, decoderCount / shards), connections, wordBank, scheduler,
+                    history, metrics, compressionThreshold);
+            server.setTcpNoDelay(tcpNoDelay);
+            server.setReuseAddr(reuseAddr);
+            server.setConnectionLostTimeout(connectionLostTimeout);
+            server.setMaxConnections(maxConnections);
+            server.setResumeWindowSeconds(resumeWindowSeconds);
+            server.setMessageRateLimit(messagesPerSecond, messageBurst);
+            server.setMatchmaking(matchSize, maxWaitSeconds);
+            if (directory != null) server.setShard(directory, i);
+            servers.add(server);
+        }
+        return servers;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public int getDecoders() {
+        return decoders;
+    }
+
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    public boolean isReuseAddr() {
+        return reuseAddr;
+    }
+
+    public int getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    public int getConnectionLostTimeout() {
+        return connectionLostTimeout;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public String getWordFile() {
+        return wordFile;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    public int getShutdownTimeout() {
+        return shutdownTimeout;
+    }
+
+    public String getHistoryFile() {
+        return historyFile;
+    }
+
+    public int getResumeWindowSeconds() {
+        return resumeWindowSeconds;
+    }
+
+    public int getMessagesPerSecond() {
+        return messagesPerSecond;
+    }
+
+    public int getMessageBurst() {
+        return messageBurst;
+    }
+
+    public int getMatchSize() {
+        return matchSize;
+    }
+
+    public int getMaxWaitSeconds() {
+        return maxWaitSeconds;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    private static int parseInt(String name, String value, int min, int max) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < min || parsed > max) throw new IllegalArgumentException("Valor fora do intervalo para " + name + ": " + value);
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor inválido para " + name + ": " + value);
+        }
+    }
+
+    private static boolean parseBoolean(String name, String value) {
+        if (value.equalsIgnoreCase("true")) return true;
+        if (value.equalsIgnoreCase("false")) return false;
+        throw new IllegalArgumentException("Valor inválido para " + name + ": " + value);
+    }
+}
@@ -2,13 +2,33 @@ package br.usp.each.typerace.server;
 
 import org.java_websocket.server.WebSocketServer;
 
-import java.util.HashMap;
-import java.util.Scanner;
-import java.util.NoSuchElementException;
+import javax.management.JMException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ServerMain {
 
-    private WebSocketServer server;
+    /**
+     * Instâncias do servidor (uma por padrão; várias com --instancias).
+     */
+    private final List<? extends WebSocketServer> servers;
+
+    /**
+     * Liberado quando o encerramento termina.
+     */
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private final AtomicBoolean stopping = new AtomicBoolean();
 
     /**
      * Construtor.
@@ -16,7 +36,16 @@ public class ServerMain {
      * @param server Indica socket com servidor a ser executado.
      */
     public ServerMain(WebSocketServer server) {
-        this.server = server;
+        this(Collections.singletonList(server));
+    }
+
+    /**
+     * Construtor.
+     *
+     * @param servers Instâncias do servidor a serem executadas no mesmo processo
+     */
+    public ServerMain(List<? extends WebSocketServer> servers) {
+        this.servers = servers;
     }
 
     /**
@@ -24,34 +53,160 @@ public class ServerMain {
      */
     public void init() {
         System.out.println("Iniciando servidor...");
-        server.start();
+        for (WebSocketServer server : servers) {
+            server.start();
+        }
     }
 
-
+    /**
+     * Encerra o servidor uma única vez (pelo comando /encerrar ou pelo sinal de término do processo), esperando
+     * no máximo o tempo informado pelo fechamento das conexões. Com várias instâncias, elas param ao mesmo tempo, e a
+     * espera total continua limitada a esse tempo.
+     *
+     * @param timeout Tempo máximo (ms) de espera pelo fechamento das conexões
+     * @param endpoint Endpoint de métricas a ser encerrado junto; pode ser null
+     */
+    void shutdown(int timeout, MetricsEndpoint endpoint) {
+        if (!stopping.compareAndSet(false, true)) return;
+        System.out.println("Encerrando servidor...");
+        try {
+            if (endpoint != null) endpoint.stop();
+            List<Thread> stoppers = new ArrayList<>(servers.size());
+            for (WebSocketServer server : servers) {
+                Thread stopper = new Thread(() -> {
+                    try {
+                        server.stop(timeout);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }, "typerace-encerramento-" + server.getPort());
+                stopper.start();
+                stoppers.add(stopper);
+            }
+            for (Thread stopper : stoppers) {
+                stopper.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            stopped.countDown();
+        }
+    }
 
     /**
      * Método inicial do programa executor do servidor.
      *
-     * @param args Argumentos passados pela linha de comando.
+     * @param args Opções da linha de comando (ver {@link ServerConfig#USAGE}). Um argumento sem "--" é o arquivo de palavras.
      */
-    public static void main(String[] args) throws InterruptedException{
-        Scanner sc = new Scanner(System.in);
-        WebSocketServer server = new Server(8080, new HashMap<>());
+    public static void main(String[] args) throws InterruptedException, IOException {
+        ServerConfig config;
+        try {
+            config = ServerConfig.fromArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(ServerConfig.USAGE);
+            return;
+        }
+        List<Server> servers = config.createServers();
+        // As instâncias compartilham as métricas
+        Server server = servers.get(0);
 
-        ServerMain main = new ServerMain(server);
+        ServerMain main = new ServerMain(servers);
 
         main.init();
+        if (servers.size() > 1) {
+            System.out.println(servers.size() + " instâncias nas portas " + config.getPort() + " a " + (config.getPort() + servers.size() - 1) + ".");
+        }
+
+        MetricsEndpoint endpoint = startMetrics(server, config.getMetricsPort());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> main.shutdown(config.getShutdownTimeout(), endpoint), "typerace-encerramento"));
 
-        String input = "";
-        while (true) {
-            if (sc.hasNext()) 
-                input = sc.nextLine();
+        // readLine bloqueia até haver uma linha, sem ocupar o processador
+        BufferedReader console = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String input;
+        while ((input = console.readLine()) != null) {
+            input = input.trim();
             if (input.equalsIgnoreCase("/encerrar")) {
-                System.out.println("Encerrando servidor...");
-                main.server.stop();
-                break;
+                main.shutdown(config.getShutdownTimeout(), endpoint);
+                return;
+            } else if (input.equalsIgnoreCase("/stats")) {
+                System.out.print(server.getMetrics().getReport());
+            } else if (input.toLowerCase().startsWith("/semente ")) {
+                // Uso: /semente <sala> <semente>; reproduz na próxima partida da sala a partida iniciada com essa semente
+                String[] parts = input.split("\\s+");
+                try {
+                    if (parts.length == 3 && ownerOf(server, parts[1]).setNextSeed(parts[1], Long.parseLong(parts[2])))
+                        System.out.println("Próxima partida da sala " + parts[1] + " usará a semente " + parts[2] + ".");
+                    else
+                        System.out.println("Uso: /semente <sala existente> <semente>");
+                } catch (NumberFormatException e) {
+                    System.out.println("Semente inválida: " + parts[2]);
+                }
+            } else if (input.toLowerCase().startsWith("/mover ")) {
+                // Uso: /mover <sala> <instância>; leva a sala, fora de partida, para outra instância
+                move(server.getShardDirectory(), input.split("\\s+"));
+            } else if (!input.isEmpty()) {
+                System.out.println("Comandos: /stats, /semente <sala> <semente>, /mover <sala> <instância>, /encerrar");
             }
         }
+        // Sem console (ex.: processo em segundo plano): segue rodando até o sinal de término
+        main.stopped.await();
+    }
+
+    /**
+     * Instância dona da sala; a própria instância informada se o servidor roda em uma só.
+     *
+     * @param server Instância qualquer do servidor
+     * @param roomId ID da sala
+     */
+    private static Server ownerOf(Server server, String roomId) {
+        ShardDirectory directory = server.getShardDirectory();
+        return (directory != null) ? directory.get(directory.shardOf(roomId)) : server;
+    }
+
+    /**
+     * Trata o comando /mover do console.
+     *
+     * @param directory Diretório das instâncias; null se o servidor roda em uma só
+     * @param parts Partes do comando: /mover, sala e índice da instância de destino
+     */
+    private static void move(ShardDirectory directory, String[] parts) {
+        if (directory == null) {
+            System.out.println("O servidor roda em uma única instância; inicie-o com --instancias para mover salas.");
+            return;
+        }
+        try {
+            int target = Integer.parseInt(parts[2]);
+            boolean moved = directory.move(parts[1], target).get(5, TimeUnit.SECONDS);
+            System.out.println(moved ? "Sala " + parts[1] + " movida para a instância " + target + " (porta " + directory.port(target) + ")."
+                    : "A sala " + parts[1] + " está em partida; tente novamente quando a partida acabar.");
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.out.println("Uso: /mover <sala> <instância de 0 a " + (directory.size() - 1) + ">");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            System.out.println("Não foi possível mover a sala " + parts[1] + ": " + e.getMessage());
+        }
     }
 
+    /**
+     * Registra as métricas por JMX e inicia o endpoint HTTP local, se configurado. Falhas não impedem o servidor de rodar.
+     *
+     * @param server Servidor cujas métricas são expostas
+     * @param port Porta do endpoint HTTP; 0 desliga o endpoint
+     * @return O endpoint iniciado, ou null
+     */
+    private static MetricsEndpoint startMetrics(Server server, int port) {
+        try {
+            server.getMetrics().registerMBean();
+            if (port == 0) return null;
+            MetricsEndpoint endpoint = new MetricsEndpoint(port, server.getMetrics());
+            endpoint.start();
+            System.out.println("Métricas disponíveis em http://localhost:" + endpoint.getPort() + "/stats e via JMX (" + ServerMetrics.OBJECT_NAME + ").");
+            return endpoint;
+        } catch (IOException | JMException e) {
+            System.out.println("Não foi possível expor as métricas: " + e.getMessage() + ". Use o comando /stats.");
+            return null;
+        }
+    }
 }
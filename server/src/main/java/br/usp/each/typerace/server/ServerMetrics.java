@@ -0,0 +1,307 @@
+package br.usp.each.typerace.server;
+
+import br.usp.each.typerace.common.LatencyHistogram;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas do servidor. Os contadores são {@link LongAdder} e as latências vão para {@link LatencyHistogram}, de modo
+ * que registrar é livre de travas e de alocação nas threads do WebSocket e nas pistas das salas.
+ * Expostas pelo comando /stats do console, pelo endpoint HTTP local ({@link MetricsEndpoint}) e por JMX.
+ */
+public class ServerMetrics implements ServerMetricsMBean {
+
+    /**
+     * Nome do MBean registrado por {@link #registerMBean()}.
+     */
+    public static final String OBJECT_NAME = "br.usp.each.typerace:type=ServerMetrics";
+
+    final LongAdder connectionsOpened = new LongAdder();
+
+    final LongAdder connectionsClosed = new LongAdder();
+
+    /**
+     * Conexões recusadas (nome em uso, conexão duplicada).
+     */
+    final LongAdder connectionsRejected = new LongAdder();
+
+    /**
+     * Conexões derrubadas por excesso de mensagens ou por não lerem as mensagens recebidas.
+     */
+    final LongAdder connectionsKicked = new LongAdder();
+
+    /**
+     * Conexões redirecionadas para a instância dona da sala.
+     */
+    final LongAdder connectionsRedirected = new LongAdder();
+
+    /**
+     * Sessões retomadas com o token após queda da conexão.
+     */
+    final LongAdder sessionsResumed = new LongAdder();
+
+    final LongAdder spectatorsOpened = new LongAdder();
+
+    final LongAdder spectatorsClosed = new LongAdder();
+
+    final LongAdder roomsCreated = new LongAdder();
+
+    final LongAdder roomsClosed = new LongAdder();
+
+    final LongAdder messagesIn = new LongAdder();
+
+    /**
+     * Mensagens recebidas e descartadas pelo limite de taxa ou por fila de saída acumulada.
+     */
+    final LongAdder messagesThrottled = new LongAdder();
+
+    /**
+     * Mensagens enviadas, contando uma por destinatário.
+     */
+    final LongAdder messagesOut = new LongAdder();
+
+    /**
+     * Quadros comprimidos com permessage-deflate ({@link DeflateExtension}), contando uma vez cada quadro de uma transmissão.
+     */
+    final LongAdder framesCompressed = new LongAdder();
+
+    /**
+     * Quadros enviados sem compressão a conexões com permessage-deflate, por estarem abaixo do tamanho mínimo.
+     */
+    final LongAdder framesUncompressed = new LongAdder();
+
+    final LongAdder bytesBeforeCompression = new LongAdder();
+
+    final LongAdder bytesAfterCompression = new LongAdder();
+
+    /**
+     * Tempo gasto comprimindo quadros.
+     */
+    final LongAdder compressionNanos = new LongAdder();
+
+    final LongAdder matchesStarted = new LongAdder();
+
+    final LongAdder matchesFinished = new LongAdder();
+
+    /**
+     * Tempo entre o recebimento de uma mensagem pela thread do WebSocket e o fim do seu tratamento na pista da sala.
+     */
+    final LatencyHistogram messageLatency = new LatencyHistogram();
+
+    /**
+     * Atraso da primeira palavra em relação ao fim nominal da contagem regressiva.
+     */
+    final LatencyHistogram countdownDelay = new LatencyHistogram();
+
+    final LatencyHistogram matchDuration = new LatencyHistogram();
+
+    /**
+     * Última amostra usada no cálculo das taxas por segundo.
+     */
+    private long sampledAt = System.nanoTime();
+
+    private long sampledIn;
+
+    private long sampledOut;
+
+    private double inPerSecond;
+
+    private double outPerSecond;
+
+    /**
+     * Registra estas métricas no servidor de MBeans da plataforma, sob {@link #OBJECT_NAME}.
+     */
+    public void registerMBean() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+    }
+
+    /**
+     * Atualiza as taxas por segundo, se a última amostra tiver mais de um segundo. As taxas são a média desde a amostra anterior.
+     */
+    private synchronized void sample() {
+        long now = System.nanoTime();
+        long elapsed = now - sampledAt;
+        if (elapsed < TimeUnit.SECONDS.toNanos(1)) return;
+        long in = messagesIn.sum();
+        long out = messagesOut.sum();
+        inPerSecond = (in - sampledIn) * 1e9 / elapsed;
+        outPerSecond = (out - sampledOut) * 1e9 / elapsed;
+        sampledAt = now;
+        sampledIn = in;
+        sampledOut = out;
+    }
+
+    @Override
+    public long getConnectionsOpened() {
+        return connectionsOpened.sum();
+    }
+
+    @Override
+    public long getConnectionsRejected() {
+        return connectionsRejected.sum();
+    }
+
+    @Override
+    public long getConnectionsKicked() {
+        return connectionsKicked.sum();
+    }
+
+    @Override
+    public long getActiveConnections() {
+        return connectionsOpened.sum() - connectionsClosed.sum();
+    }
+
+    @Override
+    public long getConnectionsRedirected() {
+        return connectionsRedirected.sum();
+    }
+
+    @Override
+    public long getActiveSpectators() {
+        return spectatorsOpened.sum() - spectatorsClosed.sum();
+    }
+
+    @Override
+    public long getSessionsResumed() {
+        return sessionsResumed.sum();
+    }
+
+    @Override
+    public long getActiveRooms() {
+        return roomsCreated.sum() - roomsClosed.sum();
+    }
+
+    @Override
+    public long getMessagesIn() {
+        return messagesIn.sum();
+    }
+
+    @Override
+    public long getMessagesThrottled() {
+        return messagesThrottled.sum();
+    }
+
+    @Override
+    public long getMessagesOut() {
+        return messagesOut.sum();
+    }
+
+    @Override
+    public synchronized double getMessagesInPerSecond() {
+        sample();
+        return inPerSecond;
+    }
+
+    @Override
+    public synchronized double getMessagesOutPerSecond() {
+        sample();
+        return outPerSecond;
+    }
+
+    @Override
+    public long getFramesCompressed() {
+        return framesCompressed.sum();
+    }
+
+    @Override
+    public long getFramesUncompressed() {
+        return framesUncompressed.sum();
+    }
+
+    /**
+     * Razão entre os bytes depois e antes da compressão (menor é melhor); 1 se nada foi comprimido.
+     */
+    @Override
+    public double getCompressionRatio() {
+        long before = bytesBeforeCompression.sum();
+        return (before == 0) ? 1 : (double) bytesAfterCompression.sum() / before;
+    }
+
+    /**
+     * Bytes economizados pela compressão.
+     */
+    @Override
+    public long getCompressionSavedBytes() {
+        return bytesBeforeCompression.sum() - bytesAfterCompression.sum();
+    }
+
+    /**
+     * Tempo médio de compressão de um quadro, em microssegundos.
+     */
+    @Override
+    public double getCompressionMeanMicros() {
+        long frames = framesCompressed.sum();
+        return (frames == 0) ? 0 : compressionNanos.sum() / 1000.0 / frames;
+    }
+
+    @Override
+    public long getCompressionTotalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(compressionNanos.sum());
+    }
+
+    @Override
+    public long getMatchesStarted() {
+        return matchesStarted.sum();
+    }
+
+    @Override
+    public long getMatchesFinished() {
+        return matchesFinished.sum();
+    }
+
+    @Override
+    public long getMessageLatencyP50Micros() {
+        return messageLatency.percentileMicros(50);
+    }
+
+    @Override
+    public long getMessageLatencyP99Micros() {
+        return messageLatency.percentileMicros(99);
+    }
+
+    @Override
+    public long getCountdownDelayP99Micros() {
+        return countdownDelay.percentileMicros(99);
+    }
+
+    @Override
+    public double getMatchDurationMeanMillis() {
+        return matchDuration.meanMicros() / 1000;
+    }
+
+    /**
+     * Relatório legível, uma métrica por linha no formato "nome valor".
+     */
+    @Override
+    public String getReport() {
+        return "conexoes_abertas " + getConnectionsOpened() + "\n"
+                + "conexoes_recusadas " + getConnectionsRejected() + "\n"
+                + "conexoes_derrubadas " + getConnectionsKicked() + "\n"
+                + "conexoes_ativas " + getActiveConnections() + "\n"
+                + "conexoes_redirecionadas " + getConnectionsRedirected() + "\n"
+                + "espectadores_ativos " + getActiveSpectators() + "\n"
+                + "sessoes_retomadas " + getSessionsResumed() + "\n"
+                + "salas_ativas " + getActiveRooms() + "\n"
+                + "mensagens_recebidas " + getMessagesIn() + "\n"
+                + "mensagens_descartadas " + getMessagesThrottled() + "\n"
+                + "mensagens_enviadas " + getMessagesOut() + "\n"
+                + "mensagens_recebidas_por_segundo " + String.format(Locale.ROOT, "%.1f", getMessagesInPerSecond()) + "\n"
+                + "mensagens_enviadas_por_segundo " + String.format(Locale.ROOT, "%.1f", getMessagesOutPerSecond()) + "\n"
+                + "quadros_comprimidos " + getFramesCompressed() + "\n"
+                + "quadros_nao_comprimidos " + getFramesUncompressed() + "\n"
+                + "razao_compressao " + String.format(Locale.ROOT, "%.3f", getCompressionRatio()) + "\n"
+                + "bytes_economizados " + getCompressionSavedBytes() + "\n"
+                + "tempo_compressao_medio_us " + String.format(Locale.ROOT, "%.1f", getCompressionMeanMicros()) + "\n"
+                + "tempo_compressao_total_ms " + getCompressionTotalMillis() + "\n"
+                + "partidas_iniciadas " + getMatchesStarted() + "\n"
+                + "partidas_encerradas " + getMatchesFinished() + "\n"
+                + "latencia_mensagem " + messageLatency.summary() + "\n"
+                + "atraso_primeira_palavra " + countdownDelay.summary() + "\n"
+                + "duracao_partida " + matchDuration.summary() + "\n";
+    }
+}
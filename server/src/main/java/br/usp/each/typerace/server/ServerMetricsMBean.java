@@ -0,0 +1,59 @@
+package br.usp.each.typerace.server;
+
+/**
+ * Interface JMX das métricas do servidor (ver {@link ServerMetrics}).
+ */
+public interface ServerMetricsMBean {
+
+    long getConnectionsOpened();
+
+    long getConnectionsRejected();
+
+    long getConnectionsKicked();
+
+    long getActiveConnections();
+
+    long getConnectionsRedirected();
+
+    long getActiveSpectators();
+
+    long getSessionsResumed();
+
+    long getActiveRooms();
+
+    long getMessagesIn();
+
+    long getMessagesThrottled();
+
+    long getMessagesOut();
+
+    double getMessagesInPerSecond();
+
+    double getMessagesOutPerSecond();
+
+    long getFramesCompressed();
+
+    long getFramesUncompressed();
+
+    double getCompressionRatio();
+
+    long getCompressionSavedBytes();
+
+    double getCompressionMeanMicros();
+
+    long getCompressionTotalMillis();
+
+    long getMatchesStarted();
+
+    long getMatchesFinished();
+
+    long getMessageLatencyP50Micros();
+
+    long getMessageLatencyP99Micros();
+
+    long getCountdownDelayP99Micros();
+
+    double getMatchDurationMeanMillis();
+
+    String getReport();
+}
@@ -0,0 +1,145 @@
+package br.usp.each.typerace.server;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Diretório das instâncias ({@link Server}) de um mesmo processo, cada uma com o próprio seletor, em portas consecutivas a
+ * partir da porta base. Cada sala pertence a uma única instância: por padrão, à indicada pelo hash do seu ID, ou à
+ * registrada por {@link #assign(String, int)}. Um cliente que chega à instância errada é redirecionado à dona da sala
+ * (código {@link Server#CLOSE_REDIRECT}, com a porta como motivo).
+ * <p>
+ * As instâncias compartilham o mapa de nomes (nomes únicos no processo), as pistas, o banco de palavras, o histórico e as
+ * métricas; só as salas e as conexões são de cada uma.
+ */
+public class ShardDirectory {
+
+    private final int basePort;
+
+    private final Server[] shards;
+
+    /**
+     * Salas cuja instância foi definida explicitamente (salas movidas e partidas automáticas); as demais seguem o hash do ID.
+     */
+    private final ConcurrentMap<String, Integer> owners;
+
+    /**
+     * Numeração das salas das partidas automáticas, única entre as instâncias.
+     */
+    private final AtomicLong matchSequence;
+
+    /**
+     * Instâncias ainda em execução; a última a parar encerra os recursos compartilhados.
+     */
+    private final AtomicInteger running;
+
+    /**
+     * Construtor.
+     *
+     * @param shardCount Quantidade de instâncias
+     * @param basePort Porta da instância 0; a instância i escuta em basePort + i
+     */
+    public ShardDirectory(int shardCount, int basePort) {
+        this.basePort = basePort;
+        this.shards = new Server[shardCount];
+        this.owners = new ConcurrentHashMap<>();
+        this.matchSequence = new AtomicLong();
+        this.running = new AtomicInteger(shardCount);
+    }
+
+    /**
+     * Registra a instância de um índice. Deve ser chamada para todas as instâncias antes de iniciá-las.
+     *
+     * @param shard Índice da instância
+     * @param server Instância
+     */
+    void register(int shard, Server server) {
+        shards[shard] = server;
+    }
+
+    public int size() {
+        return shards.length;
+    }
+
+    /**
+     * Porta em que a instância escuta.
+     *
+     * @param shard Índice da instância
+     */
+    public int port(int shard) {
+        return basePort + shard;
+    }
+
+    public Server get(int shard) {
+        return shards[shard];
+    }
+
+    /**
+     * Instância dona da sala.
+     *
+     * @param roomId ID da sala
+     */
+    public int shardOf(String roomId) {
+        Integer owner = owners.get(roomId);
+        return (owner != null) ? owner : Math.floorMod(roomId.hashCode(), shards.length);
+    }
+
+    /**
+     * Define a instância dona da sala. Conexões já abertas não mudam; novas conexões à sala vão para a nova dona.
+     *
+     * @param roomId ID da sala
+     * @param shard Índice da instância
+     */
+    public void assign(String roomId, int shard) {
+        owners.put(roomId, shard);
+    }
+
+    /**
+     * Desfaz a atribuição da sala, quando ela é retirada do registro da instância dona: a partir daí a sala segue o hash do
+     * ID. Sem isso, cada partida automática deixaria uma entrada no diretório pelo resto da vida do processo.
+     *
+     * @param roomId ID da sala
+     * @param shard Índice da instância que retirou a sala; se a sala já pertence a outra (foi movida), nada muda
+     */
+    void unassign(String roomId, int shard) {
+        owners.remove(roomId, shard);
+    }
+
+    /**
+     * Cria o ID da sala de uma partida automática, único entre as instâncias, e a atribui à instância que a cria.
+     *
+     * @param shard Índice da instância em que a partida acontece
+     */
+    String nextMatchRoom(int shard) {
+        String roomId = Matchmaker.MATCH_ROOM_PREFIX + matchSequence.incrementAndGet();
+        assign(roomId, shard);
+        return roomId;
+    }
+
+    /**
+     * Move uma sala para outra instância, se não houver partida nem contagem regressiva em andamento nela: a sala passa a
+     * pertencer à instância de destino e seus jogadores e espectadores são redirecionados para lá.
+     *
+     * @param roomId ID da sala
+     * @param target Índice da instância de destino
+     * @return Resultado da mudança: false se a sala estava em partida e não foi movida
+     */
+    public CompletableFuture<Boolean> move(String roomId, int target) {
+        if (target < 0 || target >= shards.length) throw new IllegalArgumentException("Instância inexistente: " + target);
+        int source = shardOf(roomId);
+        if (source == target) return CompletableFuture.completedFuture(true);
+        return shards[source].releaseRoom(roomId, target);
+    }
+
+    /**
+     * Registra a parada de uma instância.
+     *
+     * @return true se era a última em execução
+     */
+    boolean release() {
+        return running.decrementAndGet() == 0;
+    }
+}
@@ -0,0 +1,49 @@
+package br.usp.each.typerace.server;
+
+import org.java_websocket.WebSocket;
+
+/**
+ * Espectador de uma sala, anexado ao seu socket com {@link WebSocket#setAttachment(Object)}. Não tem nome nem estado de
+ * partida: só recebe a corrida da sala ({@link SpectatorFeed}) e suas mensagens são ignoradas.
+ */
+public class Spectator {
+
+    private final WebSocket conn;
+
+    /**
+     * Indica se o espectador negociou o protocolo binário ({@link Protocol}) no handshake.
+     */
+    private final boolean binary;
+
+    /**
+     * Sala assistida. Escrita pela thread do WebSocket ao entrar na sala, lida pelas pistas.
+     */
+    private volatile Room room;
+
+    /**
+     * Construtor.
+     *
+     * @param conn Socket do espectador
+     * @param binary Indica se o espectador negociou o protocolo binário
+     */
+    public Spectator(WebSocket conn, boolean binary) {
+        this.conn = conn;
+        this.binary = binary;
+    }
+
+    public WebSocket getConnection() {
+        return conn;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    public Room getRoom() {
+        return room;
+    }
+
+    public void setRoom(Room room) {
+        this.room = room;
+    }
+}
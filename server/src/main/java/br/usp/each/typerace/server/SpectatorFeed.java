@@ -0,0 +1,157 @@
+package br.usp.each.typerace.server;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Corrida de uma sala transmitida aos espectadores: palavra atual e pontos de cada jogador. Cada espectador recebe o estado
+ * completo ao entrar e, depois, só as diferenças, reunidas a cada {@link #TICK_MILLIS} ms em um único quadro.
+ * <p>
+ * As diferenças são calculadas na pista da sala, comparando os jogadores com o último estado transmitido, de modo que as
+ * respostas dos jogadores não fazem trabalho algum para os espectadores. O envio aos espectadores roda em outra pista
+ * ({@link #laneKey(String)}), na ordem em que foi pedido; a quantidade de espectadores só pesa nela.
+ */
+public class SpectatorFeed {
+
+    /**
+     * Intervalo entre duas transmissões de diferenças (10 Hz).
+     */
+    public static final long TICK_MILLIS = 100;
+
+    private final Broadcaster broadcaster;
+
+    /**
+     * Último estado transmitido: ID do jogador para {palavra atual, pontos}. Só usado na pista da sala.
+     */
+    private final Map<String, int[]> sent;
+
+    /**
+     * Indica se a última transmissão foi feita durante uma partida.
+     */
+    private boolean sentPlaying;
+
+    /**
+     * Quantidade de espectadores de cada protocolo; só usadas na pista da sala, que decide por elas em que formatos escrever
+     * as diferenças (as inscrições no transmissor só acontecem depois, na pista de envio).
+     */
+    private int textSpectators;
+
+    private int binarySpectators;
+
+    /**
+     * Espectadores contados em {@link #textSpectators} e {@link #binarySpectators}. Só usado na pista da sala.
+     */
+    private final Set<Spectator> members;
+
+    /**
+     * Construtor.
+     */
+    public SpectatorFeed() {
+        this.broadcaster = new Broadcaster();
+        this.sent = new HashMap<>();
+        this.members = new HashSet<>();
+    }
+
+    /**
+     * Chave da pista em que os envios aos espectadores da sala rodam.
+     *
+     * @param roomId ID da sala
+     */
+    static String laneKey(String roomId) {
+        return roomId + "#espectadores";
+    }
+
+    /**
+     * Registra a entrada de um espectador e devolve o estado completo da corrida, a ser enviado a ele antes da inscrição.
+     * As diferenças pendentes devem ter sido calculadas antes ({@link #delta(Map, boolean)}), para que o estado completo
+     * coincida com o último estado transmitido. Deve rodar na pista da sala.
+     *
+     * @param spectator Espectador que entra
+     * @param players Jogadores da sala
+     * @param playing Indica se há partida em andamento
+     */
+    MessageBatch add(Spectator spectator, Map<String, PlayerSession> players, boolean playing) {
+        if (members.add(spectator)) {
+            if (spectator.isBinary()) binarySpectators++;
+            else textSpectators++;
+        }
+        MessageBatch snapshot = new MessageBatch(!spectator.isBinary(), spectator.isBinary()).raceHeader(true, playing);
+        for (PlayerSession p : players.values()) {
+            snapshot.racePlayer(p.getName(), wordOf(p, playing), p.getPoints());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Registra a saída de um espectador. Deve rodar na pista da sala.
+     *
+     * @param spectator Espectador que sai
+     * @return false se o espectador não estava registrado (nada muda)
+     */
+    boolean remove(Spectator spectator) {
+        if (!members.remove(spectator)) return false;
+        if (spectator.isBinary()) binarySpectators--;
+        else textSpectators--;
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return textSpectators + binarySpectators == 0;
+    }
+
+    public Broadcaster getBroadcaster() {
+        return broadcaster;
+    }
+
+    /**
+     * Calcula as diferenças entre os jogadores e o último estado transmitido, que passa a ser o estado atual.
+     * Deve rodar na pista da sala.
+     *
+     * @param players Jogadores da sala
+     * @param playing Indica se há partida em andamento
+     * @return Lote com as diferenças, ou null se nada mudou
+     */
+    MessageBatch delta(Map<String, PlayerSession> players, boolean playing) {
+        MessageBatch batch = null;
+        if (playing != sentPlaying) {
+            batch = header(playing);
+            sentPlaying = playing;
+        }
+        for (PlayerSession p : players.values()) {
+            int word = wordOf(p, playing);
+            int[] last = sent.get(p.getName());
+            if (last == null) {
+                last = new int[2];
+                sent.put(p.getName(), last);
+            } else if (last[0] == word && last[1] == p.getPoints()) {
+                continue;
+            }
+            last[0] = word;
+            last[1] = p.getPoints();
+            if (batch == null) batch = header(playing);
+            batch.racePlayer(p.getName(), word, p.getPoints());
+        }
+        for (Iterator<String> it = sent.keySet().iterator(); it.hasNext(); ) {
+            String name = it.next();
+            if (players.containsKey(name)) continue;
+            it.remove();
+            if (batch == null) batch = header(playing);
+            batch.raceRemoved(name);
+        }
+        return batch;
+    }
+
+    private MessageBatch header(boolean playing) {
+        return new MessageBatch(textSpectators > 0, binarySpectators > 0).raceHeader(false, playing);
+    }
+
+    /**
+     * Número da palavra atual do jogador na partida, a partir de 1; 0 fora de partida.
+     */
+    private static int wordOf(PlayerSession p, boolean playing) {
+        return playing ? p.position + 1 : 0;
+    }
+}
@@ -0,0 +1,157 @@
+package br.usp.each.typerace.server;
+
+import java.util.*;
+
+/**
+ * Classificação ao vivo de uma sala. Mantém uma árvore de Fenwick sobre as pontuações (quantos jogadores têm cada pontuação)
+ * e um balde por pontuação com os jogadores na ordem em que a atingiram, de modo que cada acerto custa O(log P), a posição
+ * de um jogador é uma consulta O(log P) e os K primeiros saem sem ordenar a sala (P é a pontuação máxima da partida).
+ * Assim como a sala, não é sincronizada: deve ser usada apenas na pista da sala.
+ */
+public class Standings {
+
+    private final int maxScore;
+
+    /**
+     * Árvore de Fenwick indexada por pontuação + 1.
+     */
+    private final int[] tree;
+
+    /**
+     * Jogadores de cada pontuação, na ordem em que a atingiram (quem chegou antes fica à frente no desempate).
+     */
+    private final List<LinkedHashSet<PlayerSession>> buckets;
+
+    /**
+     * Pontuação de cada jogador registrada na classificação.
+     */
+    private final Map<PlayerSession, Integer> scores;
+
+    /**
+     * Construtor.
+     *
+     * @param maxScore Maior pontuação possível em uma partida
+     */
+    public Standings(int maxScore) {
+        this.maxScore = maxScore;
+        this.tree = new int[maxScore + 2];
+        this.buckets = new ArrayList<>(maxScore + 1);
+        for (int i = 0; i <= maxScore; i++) {
+            buckets.add(new LinkedHashSet<>());
+        }
+        this.scores = new HashMap<>();
+    }
+
+    /**
+     * Insere jogador na classificação com sua pontuação atual.
+     *
+     * @param session Sessão do jogador
+     */
+    public void add(PlayerSession session) {
+        if (scores.containsKey(session)) {
+            update(session);
+            return;
+        }
+        int score = clamp(session.getPoints());
+        scores.put(session, score);
+        buckets.get(score).add(session);
+        increment(score, 1);
+    }
+
+    /**
+     * Retira jogador da classificação.
+     *
+     * @param session Sessão do jogador
+     */
+    public void remove(PlayerSession session) {
+        Integer score = scores.remove(session);
+        if (score == null) return;
+        buckets.get(score).remove(session);
+        increment(score, -1);
+    }
+
+    /**
+     * Atualiza a posição do jogador após mudança de pontuação.
+     *
+     * @param session Sessão do jogador, já com a pontuação nova
+     */
+    public void update(PlayerSession session) {
+        Integer previous = scores.get(session);
+        if (previous == null) return;
+        int score = clamp(session.getPoints());
+        if (score == previous) return;
+        buckets.get(previous).remove(session);
+        increment(previous, -1);
+        scores.put(session, score);
+        buckets.get(score).add(session);
+        increment(score, 1);
+    }
+
+    /**
+     * Volta todos os jogadores para a pontuação dos seus contadores (em geral zero, no início de uma partida).
+     */
+    public void reset() {
+        List<PlayerSession> sessions = new ArrayList<>(scores.keySet());
+        Arrays.fill(tree, 0);
+        for (Set<PlayerSession> bucket : buckets) {
+            bucket.clear();
+        }
+        scores.clear();
+        for (PlayerSession session : sessions) {
+            add(session);
+        }
+    }
+
+    /**
+     * Posição do jogador: 1 + quantidade de jogadores com mais pontos (empatados dividem a posição).
+     *
+     * @param session Sessão do jogador
+     * @return A posição, ou 0 se o jogador não está na classificação
+     */
+    public int rank(PlayerSession session) {
+        Integer score = scores.get(session);
+        if (score == null) return 0;
+        return 1 + scores.size() - countUpTo(score);
+    }
+
+    /**
+     * Devolve os K primeiros colocados, do maior para o menor, sem ordenar a sala.
+     *
+     * @param k Quantidade de jogadores
+     */
+    public List<PlayerSession> top(int k) {
+        List<PlayerSession> result = new ArrayList<>(Math.min(k, scores.size()));
+        for (int score = maxScore; score >= 0 && result.size() < k; score--) {
+            for (PlayerSession session : buckets.get(score)) {
+                if (result.size() == k) break;
+                result.add(session);
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return scores.size();
+    }
+
+    private int clamp(int score) {
+        return Math.max(0, Math.min(maxScore, score));
+    }
+
+    private void increment(int score, int delta) {
+        for (int i = score + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Quantidade de jogadores com pontuação menor ou igual à informada.
+     */
+    private int countUpTo(int score) {
+        int count = 0;
+        for (int i = score + 1; i > 0; i -= i & -i) {
+            count += tree[i];
+        }
+        return count;
+    }
+}
@@ -0,0 +1,82 @@
+package br.usp.each.typerace.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limitador de taxa por balde de fichas, sem travas. O balde é representado pelo instante teórico (System.nanoTime) em que
+ * ficaria cheio de novo (algoritmo GCRA): cada mensagem aceita o adianta em um intervalo, e uma mensagem só é aceita se esse
+ * instante não estiver mais de uma rajada à frente do agora. Todo o estado de admissão cabe em um único {@link AtomicLong}.
+ */
+public class TokenBucket {
+
+    /**
+     * Intervalo entre duas fichas, em nanossegundos; 0 desliga o limite.
+     */
+    private final long intervalNanos;
+
+    /**
+     * Quanto o instante teórico pode estar à frente do agora: a rajada, em nanossegundos.
+     */
+    private final long toleranceNanos;
+
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * Mensagens recusadas desde a última aceita.
+     */
+    private final AtomicInteger rejectedInARow;
+
+    /**
+     * Construtor.
+     *
+     * @param perSecond Fichas repostas por segundo; 0 desliga o limite
+     * @param burst Capacidade do balde (mensagens aceitas em rajada)
+     */
+    public TokenBucket(int perSecond, int burst) {
+        this.intervalNanos = (perSecond > 0) ? TimeUnit.SECONDS.toNanos(1) / perSecond : 0;
+        this.toleranceNanos = intervalNanos * Math.max(0, burst - 1);
+        // Começa no passado: o balde nasce cheio
+        this.theoreticalArrival = new AtomicLong(System.nanoTime() - intervalNanos);
+        this.rejectedInARow = new AtomicInteger();
+    }
+
+    /**
+     * Tenta consumir uma ficha agora.
+     *
+     * @return true se a mensagem deve ser aceita
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(System.nanoTime());
+    }
+
+    /**
+     * Tenta consumir uma ficha no instante informado.
+     *
+     * @param now Instante atual (System.nanoTime)
+     * @return true se a mensagem deve ser aceita
+     */
+    boolean tryAcquire(long now) {
+        if (intervalNanos == 0) return true;
+        while (true) {
+            long tat = theoreticalArrival.get();
+            long base = (tat - now > 0) ? tat : now;
+            if (base - now > toleranceNanos) {
+                rejectedInARow.incrementAndGet();
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(tat, base + intervalNanos)) {
+                if (rejectedInARow.get() != 0) rejectedInARow.set(0);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Quantidade de mensagens recusadas desde a última aceita.
+     */
+    public int getRejectedInARow() {
+        return rejectedInARow.get();
+    }
+}
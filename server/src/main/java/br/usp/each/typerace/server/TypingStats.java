@@ -0,0 +1,132 @@
+package br.usp.each.typerace.server;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estatísticas de digitação de um jogador na partida, medidas no servidor com {@link System#nanoTime()}: o tempo de resposta
+ * de cada palavra vai do envio da palavra à chegada da resposta na thread do WebSocket.
+ * <p>
+ * Os tempos das últimas {@link #CAPACITY} respostas ficam em um buffer circular de primitivos, e os percentis são calculados
+ * sobre uma cópia ordenada pré-alocada; registrar uma resposta não aloca. Só é usada na pista da sala do jogador.
+ */
+public class TypingStats {
+
+    /**
+     * Quantidade de tempos de resposta guardados para o cálculo dos percentis.
+     */
+    static final int CAPACITY = 128;
+
+    /**
+     * Caracteres por palavra na medida padrão de palavras por minuto.
+     */
+    static final double CHARS_PER_WORD = 5.0;
+
+    private final long[] responseNanos;
+
+    /**
+     * Cópia ordenada dos tempos guardados, refeita só quando há novas respostas.
+     */
+    private final long[] sorted;
+
+    /**
+     * Próxima posição a ser escrita no buffer circular.
+     */
+    private int next;
+
+    /**
+     * Quantidade de tempos guardados no buffer (até {@link #CAPACITY}).
+     */
+    private int samples;
+
+    private boolean sortedValid;
+
+    private int answers;
+
+    private int correctAnswers;
+
+    private long correctChars;
+
+    /**
+     * Soma dos tempos de resposta de todas as palavras da partida.
+     */
+    private long typingNanos;
+
+    /**
+     * Construtor.
+     */
+    public TypingStats() {
+        this.responseNanos = new long[CAPACITY];
+        this.sorted = new long[CAPACITY];
+    }
+
+    /**
+     * Registra a resposta do jogador a uma palavra.
+     *
+     * @param nanos Tempo entre o envio da palavra e a chegada da resposta
+     * @param correct Indica se a resposta estava correta
+     * @param chars Quantidade de caracteres da palavra
+     */
+    public void record(long nanos, boolean correct, int chars) {
+        nanos = Math.max(0, nanos);
+        responseNanos[next] = nanos;
+        next = (next + 1) % CAPACITY;
+        if (samples < CAPACITY) samples++;
+        sortedValid = false;
+        answers++;
+        typingNanos += nanos;
+        if (correct) {
+            correctAnswers++;
+            correctChars += chars;
+        }
+    }
+
+    public int getAnswers() {
+        return answers;
+    }
+
+    /**
+     * Palavras por minuto, na medida padrão: caracteres das palavras corretas divididos por {@link #CHARS_PER_WORD},
+     * sobre o tempo total de resposta.
+     */
+    public double wordsPerMinute() {
+        if (typingNanos == 0) return 0;
+        return (correctChars / CHARS_PER_WORD) / (typingNanos / (double) TimeUnit.MINUTES.toNanos(1));
+    }
+
+    /**
+     * Porcentagem de respostas corretas (0 a 100).
+     */
+    public double accuracy() {
+        return (answers == 0) ? 0 : correctAnswers * 100.0 / answers;
+    }
+
+    /**
+     * Tempo de resposta do percentil pedido, em milissegundos, entre as últimas {@link #CAPACITY} respostas.
+     *
+     * @param percentile Percentil entre 0 e 100
+     */
+    public long percentileMillis(double percentile) {
+        if (samples == 0) return 0;
+        if (!sortedValid) {
+            System.arraycopy(responseNanos, 0, sorted, 0, samples);
+            Arrays.sort(sorted, 0, samples);
+            sortedValid = true;
+        }
+        int rank = (int) Math.ceil(samples * percentile / 100.0);
+        return TimeUnit.NANOSECONDS.toMillis(sorted[Math.min(samples, Math.max(1, rank)) - 1]);
+    }
+
+    /**
+     * Zera as estatísticas, para uma nova partida.
+     */
+    public void reset() {
+        next = 0;
+        samples = 0;
+        sortedValid = false;
+        answers = 0;
+        correctAnswers = 0;
+        correctChars = 0;
+        typingNanos = 0;
+    }
+}
@@ -0,0 +1,20 @@
+package br.usp.each.typerace.server;
+
+/**
+ * Banco de palavras do jogo. As palavras são identificadas por índices de 0 a {@link #size()} - 1,
+ * de forma que uma partida possa sortear índices em vez de embaralhar uma cópia do banco.
+ */
+public interface WordBank {
+
+    /**
+     * Quantidade de palavras do banco.
+     */
+    int size();
+
+    /**
+     * Devolve a palavra de um índice.
+     *
+     * @param index Índice da palavra, de 0 a {@link #size()} - 1
+     */
+    String word(int index);
+}
@@ -0,0 +1,75 @@
+package br.usp.each.typerace.server;
+
+/**
+ * Sequência determinística de índices do banco de palavras para uma partida. O índice da palavra N é calculado a partir
+ * de (semente, N) por uma permutação pseudoaleatória (rede de Feistel com cycle-walking), sem embaralhar nem guardar nada:
+ * cada volta de {@code size} palavras é uma permutação completa do banco, sem repetições, e a sequência nunca acaba.
+ * A mesma semente reproduz exatamente a mesma partida.
+ */
+public final class WordSequence {
+
+    private static final int ROUNDS = 4;
+
+    private final long seed;
+
+    private final int size;
+
+    private final int halfBits;
+
+    private final int halfMask;
+
+    /**
+     * Construtor.
+     *
+     * @param seed Semente da partida
+     * @param size Quantidade de palavras do banco
+     */
+    public WordSequence(long seed, int size) {
+        if (size <= 0) throw new IllegalArgumentException("Banco de palavras vazio");
+        this.seed = seed;
+        this.size = size;
+        int bits = 32 - Integer.numberOfLeadingZeros(size - 1);
+        this.halfBits = Math.max(1, (bits + 1) / 2);
+        this.halfMask = (1 << halfBits) - 1;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Devolve o índice do banco da palavra de uma posição da partida.
+     *
+     * @param position Posição da palavra na partida, a partir de 0
+     */
+    public int index(int position) {
+        long key = mix(seed ^ mix(position / size));
+        int x = position % size;
+        // O domínio da rede é uma potência de dois >= size; reaplica-se a permutação até cair dentro do banco
+        do {
+            x = encrypt(x, key);
+        } while (x >= size);
+        return x;
+    }
+
+    private int encrypt(int x, long key) {
+        int left = x >>> halfBits;
+        int right = x & halfMask;
+        for (int r = 0; r < ROUNDS; r++) {
+            int f = (int) mix(key + r * 0x9E3779B97F4A7C15L + right) & halfMask;
+            int next = left ^ f;
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+
+    /**
+     * Função de mistura do SplitMix64.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
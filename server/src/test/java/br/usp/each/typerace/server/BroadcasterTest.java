@@ -0,0 +1,73 @@
+package br.usp.each.typerace.server;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.framing.Framedata;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BroadcasterTest {
+
+    private Draft draft;
+
+    private Broadcaster subject;
+
+    @BeforeEach
+    void setup() {
+        draft = mock(Draft.class);
+        when(draft.createFrames(anyString(), anyBoolean())).thenReturn(List.of(mock(Framedata.class)));
+        subject = new Broadcaster();
+    }
+
+    @Test
+    void deveCodificarUmaVezParaTodosOsInscritos() {
+        WebSocket first = subscriber("a");
+        WebSocket second = subscriber("b");
+
+        subject.publish(new MessageBatch(true, false).line("5"));
+
+        verify(draft, times(1)).createFrames("5", false);
+        verify(first).sendFrame(anyCollection());
+        verify(second).sendFrame(anyCollection());
+    }
+
+    @Test
+    void deveCodificarUmaVezPorDraftDistinto() {
+        Draft other = mock(Draft.class);
+        when(other.createFrames(anyString(), anyBoolean())).thenReturn(List.of(mock(Framedata.class)));
+        subscriber("a");
+        WebSocket second = subscriber("b");
+        when(second.getDraft()).thenReturn(other);
+        subscriber("c");
+
+        subject.publish(new MessageBatch(true, false).line("5"));
+
+        verify(draft, times(1)).createFrames("5", false);
+        verify(other, times(1)).createFrames("5", false);
+    }
+
+    @Test
+    void naoDeveTransmitirAposCancelamento() {
+        WebSocket conn = mock(WebSocket.class);
+        PlayerSession session = new PlayerSession("a", conn, false);
+        subject.subscribe(session);
+        subject.unsubscribe(session);
+
+        subject.publish(new MessageBatch(true, false).line("5"));
+
+        assertFalse(subject.hasTextSubscribers());
+        verifyNoInteractions(conn);
+    }
+
+    private WebSocket subscriber(String name) {
+        WebSocket conn = mock(WebSocket.class);
+        when(conn.getDraft()).thenReturn(draft);
+        subject.subscribe(new PlayerSession(name, conn, false));
+        return conn;
+    }
+}
@@ -0,0 +1,89 @@
+package br.usp.each.typerace.server;
+
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.framing.BinaryFrame;
+import org.java_websocket.framing.TextFrame;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeflateExtensionTest {
+
+    private ServerMetrics metrics;
+
+    private DeflateExtension subject;
+
+    @BeforeEach
+    void setup() {
+        metrics = new ServerMetrics();
+        subject = new DeflateExtension(64, metrics);
+    }
+
+    @Test
+    void naoDeveComprimirQuadroAbaixoDoMinimo() {
+        TextFrame frame = textFrame("Acertou!");
+
+        subject.encodeFrame(frame);
+
+        assertFalse(frame.isRSV1());
+        assertEquals("Acertou!", StandardCharsets.UTF_8.decode(frame.getPayloadData()).toString());
+        assertEquals(1, metrics.getFramesUncompressed());
+        assertEquals(0, metrics.getFramesCompressed());
+    }
+
+    @Test
+    void deveComprimirQuadroGrandeERegistrarARazao() throws InvalidDataException {
+        String rules = "Regras do jogo: digite a palavra exibida e tecle Enter. ".repeat(10);
+        TextFrame frame = textFrame(rules);
+
+        subject.encodeFrame(frame);
+
+        assertTrue(frame.isRSV1());
+        assertEquals(1, metrics.getFramesCompressed());
+        assertTrue(metrics.getCompressionRatio() < 0.5);
+        new PerMessageDeflateExtension().decodeFrame(frame);
+        assertEquals(rules, StandardCharsets.UTF_8.decode(frame.getPayloadData()).toString());
+    }
+
+    @Test
+    void naoDeveComprimirDeNovoQuadroJaComprimido() {
+        TextFrame frame = textFrame("placar ".repeat(20));
+        subject.encodeFrame(frame);
+        ByteBuffer compressed = frame.getPayloadData().duplicate();
+
+        subject.copyInstance().encodeFrame(frame);
+
+        assertEquals(compressed, frame.getPayloadData());
+        assertEquals(1, metrics.getFramesCompressed());
+    }
+
+    @Test
+    void deveComprimirApenasAFatiaDoBuffer() throws InvalidDataException {
+        byte[] payload = new byte[100];
+        Arrays.fill(payload, (byte) 7);
+        byte[] backing = Arrays.copyOf(payload, 256);
+        Arrays.fill(backing, 100, 256, (byte) 1);
+        BinaryFrame frame = new BinaryFrame();
+        frame.setPayload(ByteBuffer.wrap(backing, 0, 100));
+
+        subject.encodeFrame(frame);
+        new PerMessageDeflateExtension().decodeFrame(frame);
+
+        ByteBuffer decoded = frame.getPayloadData();
+        byte[] result = new byte[decoded.remaining()];
+        decoded.get(result);
+        assertArrayEquals(payload, result);
+    }
+
+    private static TextFrame textFrame(String text) {
+        TextFrame frame = new TextFrame();
+        frame.setPayload(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+        return frame;
+    }
+}
@@ -0,0 +1,99 @@
+package br.usp.each.typerace.server;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileMatchHistoryTest {
+
+    @TempDir
+    Path dir;
+
+    private static MatchRecord match(long seed, long duration, MatchRecord.PlayerResult... results) {
+        return new MatchRecord("principal", seed, 1_700_000_000_000L + seed, duration, Arrays.asList(results));
+    }
+
+    private static MatchRecord.PlayerResult result(String name, int points, int errors) {
+        return new MatchRecord.PlayerResult(name, points, errors);
+    }
+
+    @Test
+    void deveConsultarPartidasRecentesERecordeAposReabrir() throws IOException {
+        Path file = dir.resolve("partidas.log");
+        FileMatchHistory subject = FileMatchHistory.open(file);
+        subject.record(match(1, 60_000, result("ana", 20, 1), result("bia", 12, 4)));
+        subject.record(match(2, 30_000, result("bia", 20, 0), result("ana", 18, 2)));
+        subject.record(match(3, 90_000, result("ana", 20, 5)));
+        subject.close();
+
+        FileMatchHistory reopened = FileMatchHistory.open(file);
+        try {
+            List<MatchRecord> recent = reopened.recentMatches("ana", 2);
+            assertEquals(2, recent.size());
+            assertEquals(3, recent.get(0).getSeed());
+            assertEquals(2, recent.get(1).getSeed());
+            assertEquals(2, recent.get(1).rankOf("ana"));
+
+            // 18 pontos em 30 s (36 por minuto) supera 20 pontos em 60 s e em 90 s
+            assertEquals(2, reopened.personalBest("ana").getSeed());
+            assertEquals(2, reopened.personalBest("bia").getSeed());
+            assertNull(reopened.personalBest("caio"));
+            assertTrue(reopened.recentMatches("caio", 5).isEmpty());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void deveDescartarFinalIncompleto() throws IOException {
+        Path file = dir.resolve("partidas.log");
+        FileMatchHistory subject = FileMatchHistory.open(file);
+        subject.record(match(1, 60_000, result("ana", 20, 1)));
+        subject.close();
+        long validSize = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 40, 1, 2}));
+        }
+
+        FileMatchHistory reopened = FileMatchHistory.open(file);
+        try {
+            assertEquals(validSize, Files.size(file));
+            assertEquals(1, reopened.recentMatches("ana", 5).size());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void deveCalcularVelocidadeMediaDasUltimasPartidasSemLerOArquivo() throws IOException {
+        Path file = dir.resolve("partidas.log");
+        FileMatchHistory subject = FileMatchHistory.open(file);
+        MatchRecord last = null;
+        MatchRecord previous = null;
+        for (int i = 1; i <= FileMatchHistory.RECENT_SPEEDS + 3; i++) {
+            previous = last;
+            last = match(i, 1000L * i, result("ana", 20, 0));
+            subject.record(last);
+        }
+        subject.close();
+
+        FileMatchHistory reopened = FileMatchHistory.open(file);
+        try {
+            double expected = (last.wordsPerMinute("ana") + previous.wordsPerMinute("ana")) / 2;
+            assertEquals(expected, reopened.averageWordsPerMinute("ana", 2), 1e-9);
+            assertEquals(0, reopened.averageWordsPerMinute("caio", 2));
+        } finally {
+            reopened.close();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package br.usp.each.typerace.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class GameSchedulerTest {
+
+    private GameScheduler subject;
+
+    @BeforeEach
+    void setup() {
+        subject = new GameScheduler(2);
+    }
+
+    @AfterEach
+    void teardown() {
+        subject.shutdown();
+    }
+
+    @Test
+    void deveContarRegressivamenteEFinalizar() throws InterruptedException {
+        List<Integer> ticks = new CopyOnWriteArrayList<>();
+        CountDownLatch finished = new CountDownLatch(1);
+
+        subject.countdown("sala", 3, 10, TimeUnit.MILLISECONDS, ticks::add, finished::countDown);
+
+        assertTrue(finished.await(1, TimeUnit.SECONDS));
+        assertEquals(List.of(3, 2, 1), ticks);
+    }
+
+    @Test
+    void naoDeveBloquearQuemAgenda() {
+        long start = System.nanoTime();
+
+        subject.schedule("sala", () -> { }, 1, TimeUnit.SECONDS);
+
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    void deveTratarExcecaoDaTarefaESeguirNaPista() throws Exception {
+        CountDownLatch next = new CountDownLatch(1);
+
+        ScheduledFuture<?> failed = subject.schedule("sala", () -> {
+            throw new IllegalStateException("falha");
+        }, 0, TimeUnit.MILLISECONDS);
+        subject.execute("sala", next::countDown);
+
+        // A exceção é registrada pela pista, e não guardada no Future
+        assertNull(failed.get(1, TimeUnit.SECONDS));
+        assertTrue(next.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void deveEsperarTarefaEmAndamentoAoEncerrar() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        subject.execute("sala", () -> {
+            started.countDown();
+            // Como o fim de uma partida: termina mesmo que a pista seja interrompida
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+            finished.countDown();
+        });
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+
+        subject.shutdown();
+
+        assertTrue(subject.awaitTermination(1, TimeUnit.SECONDS));
+        assertEquals(0, finished.getCount());
+    }
+
+    @Test
+    void deveAssociarMesmaSalaAMesmaPista() {
+        assertSame(subject.lane("sala"), subject.lane("sala"));
+    }
+
+    @Test
+    void modoVirtualDeveContarRegressivamenteNaPistaDaSala() throws InterruptedException {
+        assumeTrue(GameScheduler.virtualThreadsAvailable());
+        GameScheduler virtual = GameScheduler.virtualThreads(16);
+        try {
+            List<Integer> ticks = new CopyOnWriteArrayList<>();
+            CountDownLatch finished = new CountDownLatch(1);
+
+            virtual.countdown("sala", 3, 10, TimeUnit.MILLISECONDS, ticks::add, finished::countDown);
+
+            assertTrue(virtual.isVirtual());
+            assertTrue(finished.await(1, TimeUnit.SECONDS));
+            assertEquals(List.of(3, 2, 1), ticks);
+        } finally {
+            virtual.shutdown();
+        }
+    }
+
+    @Test
+    void modoVirtualNaoDeveTravarOutrasSalasQuandoUmaBloqueia() throws InterruptedException {
+        assumeTrue(GameScheduler.virtualThreadsAvailable());
+        GameScheduler virtual = GameScheduler.virtualThreads(16);
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch otherRan = new CountDownLatch(1);
+            String blocked = "sala";
+            String other = "outra";
+            assertNotSame(virtual.lane(blocked), virtual.lane(other));
+
+            virtual.execute(blocked, () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            virtual.execute(other, otherRan::countDown);
+
+            assertTrue(otherRan.await(1, TimeUnit.SECONDS));
+            release.countDown();
+        } finally {
+            virtual.shutdown();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package br.usp.each.typerace.server;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedWordBankTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void deveIndexarUmaPalavraPorLinha() throws IOException {
+        Path file = dir.resolve("palavras.txt");
+        Files.write(file, "# comentário\r\nUm\r\n\r\nDois\nTrês".getBytes(StandardCharsets.UTF_8));
+
+        MappedWordBank subject = MappedWordBank.open(file);
+
+        assertEquals(3, subject.size());
+        assertEquals("Um", subject.word(0));
+        assertEquals("Dois", subject.word(1));
+        assertEquals("Três", subject.word(2));
+    }
+
+    @Test
+    void deveRejeitarIndiceForaDoBanco() {
+        MappedWordBank subject = new MappedWordBank(ByteBuffer.wrap("Um\n".getBytes(StandardCharsets.UTF_8)));
+
+        assertThrows(IndexOutOfBoundsException.class, () -> subject.word(1));
+    }
+
+    @Test
+    void deveCarregarDicionarioEmbutido() {
+        MappedWordBank subject = MappedWordBank.fromDefaultResource();
+
+        assertTrue(subject.size() > 0);
+        assertEquals("Palavras", subject.word(0));
+    }
+}
@@ -0,0 +1,89 @@
+package br.usp.each.typerace.server;
+
+import org.java_websocket.WebSocket;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class MatchmakerTest {
+
+    private static PlayerSession player(String name) {
+        return new PlayerSession(name, mock(WebSocket.class), false);
+    }
+
+    @Test
+    void deveFormarPartidaQuandoFaixaCompleta() {
+        Matchmaker subject = new Matchmaker(3, 10);
+        PlayerSession ana = player("ana");
+        PlayerSession bia = player("bia");
+        PlayerSession caio = player("caio");
+
+        subject.enqueue(ana, 0, 0);
+        subject.enqueue(bia, 0, 0);
+        assertNull(subject.nextGroup(0));
+        subject.enqueue(caio, 0, 0);
+
+        assertEquals(Arrays.asList(ana, bia, caio), subject.nextGroup(0));
+        assertEquals(0, subject.size());
+    }
+
+    @Test
+    void naoDeveMisturarFaixasAntesDaEsperaMaxima() {
+        Matchmaker subject = new Matchmaker(2, 10);
+        subject.enqueue(player("ana"), 0, 0);
+        subject.enqueue(player("bia"), 5, 0);
+
+        assertNull(subject.nextGroup(TimeUnit.SECONDS.toNanos(9)));
+        List<PlayerSession> group = subject.nextGroup(TimeUnit.SECONDS.toNanos(10));
+
+        assertNotNull(group);
+        assertEquals(2, group.size());
+    }
+
+    @Test
+    void deveCompletarComFaixasMaisProximasAposEsperaMaxima() {
+        Matchmaker subject = new Matchmaker(3, 1);
+        PlayerSession ana = player("ana");
+        PlayerSession bia = player("bia");
+        PlayerSession caio = player("caio");
+        PlayerSession davi = player("davi");
+        subject.enqueue(ana, 3, 0);
+        subject.enqueue(bia, 7, 0);
+        subject.enqueue(caio, 4, 0);
+        subject.enqueue(davi, 2, 0);
+
+        List<PlayerSession> group = subject.nextGroup(TimeUnit.SECONDS.toNanos(1));
+
+        assertEquals(3, group.size());
+        assertTrue(group.containsAll(Arrays.asList(ana, caio, davi)));
+        assertTrue(subject.contains(bia));
+    }
+
+    @Test
+    void naoDeveAgruparJogadorQueSaiuDaFila() {
+        Matchmaker subject = new Matchmaker(2, 10);
+        PlayerSession ana = player("ana");
+        PlayerSession bia = player("bia");
+        PlayerSession caio = player("caio");
+        subject.enqueue(ana, 1, 0);
+        subject.enqueue(bia, 1, 0);
+        assertTrue(subject.remove(ana));
+        subject.nextGroup(0);
+        subject.enqueue(caio, 1, 0);
+
+        assertFalse(subject.remove(ana));
+        assertEquals(Arrays.asList(bia, caio), subject.nextGroup(0));
+    }
+
+    @Test
+    void deveCalcularFaixaPelaMediaDePalavrasPorMinuto() {
+        assertEquals(0, Matchmaker.tierOf(0));
+        assertEquals(2, Matchmaker.tierOf(25));
+        assertEquals(Matchmaker.TIERS - 1, Matchmaker.tierOf(1000));
+    }
+}
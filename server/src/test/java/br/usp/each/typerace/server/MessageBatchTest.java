@@ -0,0 +1,78 @@
+package br.usp.each.typerace.server;
+
+import org.java_websocket.WebSocket;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class MessageBatchTest {
+
+    @Test
+    void deveAgruparLinhasEmUmUnicoQuadro() {
+        WebSocket conn = mock(WebSocket.class);
+
+        new MessageBatch().line(":correct:1").line("Acertou!").line("-------").sendTo(conn);
+
+        verify(conn, times(1)).send(":correct:1\nAcertou!\n-------");
+    }
+
+    @Test
+    void naoDeveEnviarLoteVazio() {
+        WebSocket conn = mock(WebSocket.class);
+
+        new MessageBatch().sendTo(conn);
+
+        verifyNoInteractions(conn);
+    }
+
+    @Test
+    void deveEscreverRegistrosBinarios() {
+        ByteBuffer frame = new MessageBatch(false, true).answerResult(true, 3, 1).word(5, "Casa").binary();
+
+        assertEquals(Protocol.VERSION, frame.get());
+        assertEquals(Protocol.ANSWER_RESULT, frame.get());
+        assertEquals(1, frame.get());
+        assertEquals(3, frame.getInt());
+        assertEquals(1, frame.getInt());
+        assertEquals(Protocol.WORD, frame.get());
+        assertEquals(5, frame.getInt());
+        assertEquals("Casa", Protocol.readString(frame));
+        assertFalse(frame.hasRemaining());
+    }
+
+    @Test
+    void deveEscreverTextoEquivalenteAoBinario() {
+        MessageBatch batch = new MessageBatch().answerResult(false, 0, 2).word(2, "Casa");
+
+        assertEquals(":errors:2\nErrou.\n-------\nPalavra 2:\nCasa", batch.text());
+    }
+
+    @Test
+    void deveEscreverEstadoDaRetomadaEmUmUnicoQuadro() {
+        ByteBuffer frame = new MessageBatch(false, true).resumed(7, 2).word(9, "Casa").binary();
+
+        assertEquals(Protocol.VERSION, frame.get());
+        assertEquals(Protocol.RESUMED, frame.get());
+        assertEquals(7, frame.getInt());
+        assertEquals(2, frame.getInt());
+        assertEquals(Protocol.WORD, frame.get());
+        assertEquals(9, frame.getInt());
+        assertEquals("Casa", Protocol.readString(frame));
+        assertFalse(frame.hasRemaining());
+        assertEquals(":sessao:abc", new MessageBatch().session("abc").text());
+    }
+
+    @Test
+    void deveEscreverEstatisticasDeDigitacao() {
+        TypingStats stats = new TypingStats();
+        stats.record(1_000_000_000L, true, 5);
+        stats.record(1_000_000_000L, false, 5);
+
+        MessageBatch batch = new MessageBatch().typingStats(1, 1, stats);
+
+        assertEquals(":correct:1\n:errors:1\n:stats:300,500,1000,1000,1000\n:informStats:", batch.text());
+    }
+}
@@ -0,0 +1,27 @@
+package br.usp.each.typerace.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProtocolTest {
+
+    @Test
+    void deveDecodificarResposta() {
+        byte[] word = "Ação".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = ByteBuffer.allocate(4 + word.length);
+        frame.put(Protocol.VERSION).put(Protocol.ANSWER).putShort((short) word.length).put(word).flip();
+
+        assertEquals("Ação", Protocol.decodeAnswer(frame));
+    }
+
+    @Test
+    void deveRejeitarQuadroInvalido() {
+        assertNull(Protocol.decodeAnswer(ByteBuffer.wrap(new byte[]{9, Protocol.ANSWER, 0, 0})));
+        assertNull(Protocol.decodeAnswer(ByteBuffer.wrap(new byte[]{Protocol.VERSION, Protocol.ANSWER, 0, 9})));
+        assertNull(Protocol.decodeAnswer(ByteBuffer.wrap(new byte[]{Protocol.VERSION})));
+    }
+}
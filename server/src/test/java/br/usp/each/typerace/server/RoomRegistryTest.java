@@ -0,0 +1,63 @@
+package br.usp.each.typerace.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoomRegistryTest {
+
+    private GameScheduler scheduler;
+
+    private RoomRegistry subject;
+
+    @BeforeEach
+    void setup() {
+        scheduler = new GameScheduler(2);
+        subject = new RoomRegistry(scheduler, new MappedWordBank(ByteBuffer.wrap("Palavra\n".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @AfterEach
+    void teardown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void deveReutilizarSalaComMesmoID() {
+        Room room = subject.getOrCreate("sala");
+
+        assertSame(room, subject.getOrCreate("sala"));
+        assertNotSame(room, subject.getOrCreate("outra"));
+        assertEquals(2, subject.size());
+    }
+
+    @Test
+    void deveRetirarSalaDoRegistro() {
+        Room room = subject.getOrCreate("sala");
+
+        subject.remove(room);
+
+        assertNull(subject.get("sala"));
+        assertNotSame(room, subject.getOrCreate("sala"));
+    }
+
+    @Test
+    void deveRetirarSalaDePartidaAutomaticaSemJogadores() throws InterruptedException {
+        subject.startMatch(Collections.emptyList());
+        Room room = subject.get(Matchmaker.MATCH_ROOM_PREFIX + "1");
+        assertNotNull(room);
+
+        CountDownLatch done = new CountDownLatch(1);
+        room.execute(done::countDown);
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertNull(subject.get(Matchmaker.MATCH_ROOM_PREFIX + "1"));
+    }
+}
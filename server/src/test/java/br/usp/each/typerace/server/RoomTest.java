@@ -0,0 +1,113 @@
+package br.usp.each.typerace.server;
+
+import org.java_websocket.WebSocket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RoomTest {
+
+    private GameScheduler scheduler;
+
+    private Room subject;
+
+    @BeforeEach
+    void setup() {
+        scheduler = new GameScheduler(2);
+        subject = new Room("sala", scheduler, new MappedWordBank(ByteBuffer.wrap("Palavra\n".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @AfterEach
+    void teardown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void deveVoltarAAguardarQuandoTodosOsJogadoresSaemDuranteAContagem() throws Exception {
+        PlayerSession ana = player("ana");
+        PlayerSession bia = player("bia");
+
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        subject.execute(() -> {
+            subject.watch(new Spectator(connection(), false));
+            ana.setRoom(subject);
+            bia.setRoom(subject);
+            subject.join(ana);
+            subject.join(bia);
+            subject.onMessage(ana, "/pronto");
+            subject.onMessage(bia, "/pronto");
+            boolean countingDown = !subject.isIdle();
+            subject.leave(ana);
+            subject.leave(bia);
+            // O fim da contagem já agendada chega depois da saída de todos
+            subject.beginMatch();
+            result.complete(countingDown && subject.isIdle() && !subject.isPlaying());
+        });
+
+        assertTrue(result.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void naoDeveMedirRespostaDeQuemEntrouComAPartidaEmAndamento() throws Exception {
+        PlayerSession ana = player("ana");
+        PlayerSession bia = player("bia");
+        PlayerSession caio = player("caio");
+
+        CompletableFuture<TypingStats> result = new CompletableFuture<>();
+        subject.execute(() -> {
+            ana.setRoom(subject);
+            bia.setRoom(subject);
+            caio.setRoom(subject);
+            subject.join(ana);
+            subject.join(bia);
+            subject.onMessage(ana, "/pronto");
+            subject.onMessage(bia, "/pronto");
+            subject.beginMatch();
+            subject.join(caio);
+            // Nenhuma palavra foi enviada a caio: esta resposta não entra nas estatísticas
+            subject.onMessage(caio, "/pronto");
+            subject.onMessage(caio, "Palavra");
+            result.complete(caio.typing);
+        });
+
+        TypingStats typing = result.get(1, TimeUnit.SECONDS);
+        assertEquals(1, typing.getAnswers());
+        assertTrue(typing.percentileMillis(100) < 1000);
+    }
+
+    @Test
+    void naoDeveContarSaidaDeEspectadorQueNaoEstavaNaSala() throws Exception {
+        Spectator watching = new Spectator(connection(), false);
+        Spectator elsewhere = new Spectator(connection(), false);
+
+        CompletableFuture<Boolean> strayEmptied = new CompletableFuture<>();
+        CompletableFuture<Boolean> lastEmptied = new CompletableFuture<>();
+        subject.execute(() -> {
+            subject.watch(watching);
+            // Espectador cuja conexão fechou enquanto entrava em outra instância da sala
+            strayEmptied.complete(subject.unwatch(elsewhere));
+            lastEmptied.complete(subject.unwatch(watching));
+        });
+
+        assertFalse(strayEmptied.get(1, TimeUnit.SECONDS));
+        assertTrue(lastEmptied.get(1, TimeUnit.SECONDS));
+    }
+
+    private static PlayerSession player(String name) {
+        return new PlayerSession(name, connection(), false);
+    }
+
+    private static WebSocket connection() {
+        WebSocket conn = mock(WebSocket.class);
+        when(conn.isOpen()).thenReturn(true);
+        return conn;
+    }
+}
@@ -0,0 +1,77 @@
+package br.usp.each.typerace.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SerialExecutorTest {
+
+    private ExecutorService threads;
+
+    private SerialExecutor subject;
+
+    @BeforeEach
+    void setup() {
+        threads = Executors.newFixedThreadPool(4);
+        subject = new SerialExecutor(threads);
+    }
+
+    @AfterEach
+    void teardown() {
+        threads.shutdownNow();
+    }
+
+    @Test
+    void deveExecutarUmaTarefaPorVezNaOrdemDeChegada() throws InterruptedException {
+        List<Integer> order = new ArrayList<>();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1000);
+
+        for (int i = 0; i < 1000; i++) {
+            final int value = i;
+            subject.execute(() -> {
+                if (running.incrementAndGet() > 1) overlaps.incrementAndGet();
+                order.add(value);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, order.get(i));
+        }
+    }
+
+    @Test
+    void excecaoNaoDeveInterromperAFila() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+
+        subject.execute(() -> {
+            throw new IllegalStateException("falha");
+        });
+        subject.execute(ran::countDown);
+
+        assertTrue(ran.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void deveRecusarTarefasAposEncerramento() {
+        subject.shutdown();
+
+        assertThrows(RejectedExecutionException.class, () -> subject.execute(() -> { }));
+    }
+}
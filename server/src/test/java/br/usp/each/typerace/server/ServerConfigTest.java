@@ -0,0 +1,77 @@
+package br.usp.each.typerace.server;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerConfigTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void deveUsarPadroesSemArgumentos() throws IOException {
+        ServerConfig subject = ServerConfig.fromArgs(new String[0]);
+
+        assertEquals(8080, subject.getPort());
+        assertTrue(subject.isTcpNoDelay());
+        assertEquals(0, subject.getMaxConnections());
+        assertFalse(subject.isVirtualThreads());
+        assertNull(subject.getWordFile());
+        assertEquals(DeflateExtension.DEFAULT_THRESHOLD, subject.getCompressionThreshold());
+    }
+
+    @Test
+    void deveLerOpcoesDaLinhaDeComando() throws IOException {
+        ServerConfig subject = ServerConfig.fromArgs(new String[]{
+                "--porta=9000", "--decodificadores=4", "--tcp-no-delay=false", "--buffer-recepcao=65536",
+                "--timeout-conexao=30", "--max-conexoes=500", "--threads-virtuais", "--janela-retomada=10",
+                "--tamanho-partida=6", "--espera-maxima=20", "--compressao-minima=0", "palavras.txt"});
+
+        assertEquals(9000, subject.getPort());
+        assertEquals(4, subject.getDecoders());
+        assertFalse(subject.isTcpNoDelay());
+        assertEquals(65536, subject.getReceiveBufferSize());
+        assertEquals(30, subject.getConnectionLostTimeout());
+        assertEquals(500, subject.getMaxConnections());
+        assertTrue(subject.isVirtualThreads());
+        assertEquals(10, subject.getResumeWindowSeconds());
+        assertEquals(6, subject.getMatchSize());
+        assertEquals(20, subject.getMaxWaitSeconds());
+        assertEquals(0, subject.getCompressionThreshold());
+        assertEquals("palavras.txt", subject.getWordFile());
+    }
+
+    @Test
+    void linhaDeComandoDeveSobreporArquivo() throws IOException {
+        Path file = dir.resolve("servidor.properties");
+        Files.write(file, "porta=7000\nmax-conexoes=100\n".getBytes(StandardCharsets.UTF_8));
+
+        ServerConfig subject = ServerConfig.fromArgs(new String[]{"--config=" + file, "--porta=7001"});
+
+        assertEquals(7001, subject.getPort());
+        assertEquals(100, subject.getMaxConnections());
+    }
+
+    @Test
+    void deveRecusarInstanciasComPortaDeMetricasNoIntervalo() throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> ServerConfig.fromArgs(new String[]{"--porta=8080", "--instancias=4"}));
+
+        ServerConfig subject = ServerConfig.fromArgs(new String[]{"--porta=8080", "--instancias=4", "--porta-metricas=9090"});
+
+        assertEquals(4, subject.getShards());
+    }
+
+    @Test
+    void deveRecusarOpcaoDesconhecidaOuInvalida() {
+        assertThrows(IllegalArgumentException.class, () -> ServerConfig.fromArgs(new String[]{"--cor=azul"}));
+        assertThrows(IllegalArgumentException.class, () -> ServerConfig.fromArgs(new String[]{"--porta=abc"}));
+        assertThrows(IllegalArgumentException.class, () -> ServerConfig.fromArgs(new String[]{"--porta=70000"}));
+    }
+}
@@ -2,6 +2,11 @@ package br.usp.each.typerace.server;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -24,4 +29,32 @@ class ServerMainTest {
 
         verify(serverMock).start();
     }
-}
\ No newline at end of file
+
+    @Test
+    void deveEncerrarServidorUmaUnicaVez() throws InterruptedException {
+        subject.shutdown(100, null);
+        subject.shutdown(100, null);
+
+        verify(serverMock, times(1)).stop(100);
+    }
+
+    @Test
+    void deveEncerrarInstanciasAoMesmoTempo() throws InterruptedException {
+        Server other = mock(Server.class);
+        CountDownLatch stopping = new CountDownLatch(2);
+        CountDownLatch overlapped = new CountDownLatch(2);
+        Answer<Void> stop = invocation -> {
+            stopping.countDown();
+            // Só termina a tempo se a outra instância também estiver parando
+            if (stopping.await(1, TimeUnit.SECONDS)) overlapped.countDown();
+            return null;
+        };
+        doAnswer(stop).when(serverMock).stop(100);
+        doAnswer(stop).when(other).stop(100);
+        subject = new ServerMain(Arrays.asList(serverMock, other));
+
+        subject.shutdown(100, null);
+
+        assertEquals(0, overlapped.getCount());
+    }
+}
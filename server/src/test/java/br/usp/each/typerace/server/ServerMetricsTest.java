@@ -0,0 +1,74 @@
+package br.usp.each.typerace.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerMetricsTest {
+
+    @Test
+    void deveCalcularConexoesESalasAtivas() {
+        ServerMetrics subject = new ServerMetrics();
+
+        subject.connectionsOpened.add(3);
+        subject.connectionsClosed.increment();
+        subject.roomsCreated.add(2);
+        subject.roomsClosed.increment();
+
+        assertEquals(2, subject.getActiveConnections());
+        assertEquals(1, subject.getActiveRooms());
+    }
+
+    @Test
+    void deveCalcularRazaoETempoDeCompressao() {
+        ServerMetrics subject = new ServerMetrics();
+        assertEquals(1, subject.getCompressionRatio());
+
+        subject.framesCompressed.add(2);
+        subject.bytesBeforeCompression.add(1000);
+        subject.bytesAfterCompression.add(250);
+        subject.compressionNanos.add(TimeUnit.MICROSECONDS.toNanos(30));
+
+        assertEquals(0.25, subject.getCompressionRatio(), 1e-9);
+        assertEquals(750, subject.getCompressionSavedBytes());
+        assertEquals(15, subject.getCompressionMeanMicros(), 1e-9);
+        assertTrue(subject.getReport().contains("razao_compressao 0.250\n"));
+    }
+
+    @Test
+    void relatorioDeveTrazerUmaMetricaPorLinha() {
+        ServerMetrics subject = new ServerMetrics();
+        subject.messagesIn.add(5);
+        subject.messageLatency.record(TimeUnit.MICROSECONDS.toNanos(250));
+
+        String report = subject.getReport();
+
+        assertTrue(report.contains("mensagens_recebidas 5\n"));
+        assertTrue(report.contains("latencia_mensagem n=1"));
+    }
+
+    @Test
+    void endpointDeveServirORelatorio() throws IOException {
+        ServerMetrics metrics = new ServerMetrics();
+        metrics.matchesStarted.increment();
+        MetricsEndpoint subject = new MetricsEndpoint(0, metrics);
+        subject.start();
+        try {
+            HttpURLConnection http = (HttpURLConnection) new URL("http://localhost:" + subject.getPort() + "/stats").openConnection();
+            assertEquals(200, http.getResponseCode());
+            try (InputStream in = http.getInputStream()) {
+                String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                assertTrue(body.contains("partidas_iniciadas 1\n"));
+            }
+        } finally {
+            subject.stop();
+        }
+    }
+}
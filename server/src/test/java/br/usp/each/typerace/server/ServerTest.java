@@ -1,14 +1,25 @@
 package br.usp.each.typerace.server;
 
 import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.exceptions.InvalidDataException;
 import org.java_websocket.handshake.ClientHandshake;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 
+import java.lang.reflect.Field;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -62,4 +73,254 @@ class ServerTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    public void deveExtrairSalaENomeDaURI() {
+        assertEquals("sala1", Server.roomFromDescriptor("/sala1/jogador"));
+        assertEquals("jogador", Server.nameFromDescriptor("/sala1/jogador"));
+        assertEquals(Server.DEFAULT_ROOM, Server.roomFromDescriptor("/jogador"));
+        assertEquals("jogador", Server.nameFromDescriptor("/jogador"));
+    }
+
+    @Test
+    public void deveAnexarSessaoAoSocket() {
+        WebSocket conn = mock(WebSocket.class);
+        when(conn.getResourceDescriptor()).thenReturn("/sala1/jogador");
+
+        subject.onOpen(conn, mock(ClientHandshake.class));
+
+        assertSame(conn, connections.get("jogador"));
+        verify(conn).setAttachment(any(PlayerSession.class));
+    }
+
+    @Test
+    public void deveRetomarSessaoComTokenAposQuedaDaConexao() {
+        WebSocket first = mock(WebSocket.class);
+        when(first.getResourceDescriptor()).thenReturn("/sala1/jogador");
+        subject.onOpen(first, mock(ClientHandshake.class));
+        ArgumentCaptor<PlayerSession> attached = ArgumentCaptor.forClass(PlayerSession.class);
+        verify(first).setAttachment(attached.capture());
+        PlayerSession session = attached.getValue();
+        when(first.getAttachment()).thenReturn(session);
+
+        subject.onClose(first, 1006, "Queda", true);
+
+        WebSocket intruder = mock(WebSocket.class);
+        when(intruder.getResourceDescriptor()).thenReturn("/sala1/jogador");
+        subject.onOpen(intruder, mock(ClientHandshake.class));
+        verify(intruder).close(eq(4002), anyString());
+
+        WebSocket second = mock(WebSocket.class);
+        when(second.getResourceDescriptor()).thenReturn("/sala1/jogador");
+        ClientHandshake handshake = mock(ClientHandshake.class);
+        when(handshake.getFieldValue(Protocol.SESSION_HEADER)).thenReturn(session.getToken());
+        subject.onOpen(second, handshake);
+
+        assertSame(second, connections.get("jogador"));
+        verify(second).setAttachment(session);
+        assertEquals(1, subject.getMetrics().getSessionsResumed());
+    }
+
+    @Test
+    public void naoDeveRetomarSessaoComTokenInvalido() {
+        WebSocket first = mock(WebSocket.class);
+        when(first.getResourceDescriptor()).thenReturn("/jogador");
+        subject.onOpen(first, mock(ClientHandshake.class));
+        ArgumentCaptor<PlayerSession> attached = ArgumentCaptor.forClass(PlayerSession.class);
+        verify(first).setAttachment(attached.capture());
+        when(first.getAttachment()).thenReturn(attached.getValue());
+        subject.onClose(first, 1006, "Queda", true);
+
+        WebSocket second = mock(WebSocket.class);
+        when(second.getResourceDescriptor()).thenReturn("/jogador");
+        ClientHandshake handshake = mock(ClientHandshake.class);
+        when(handshake.getFieldValue(Protocol.SESSION_HEADER)).thenReturn("token-errado");
+        subject.onOpen(second, handshake);
+
+        verify(second).close(eq(4002), anyString());
+        assertFalse(connections.containsKey("jogador"));
+        assertEquals(0, subject.getMetrics().getSessionsResumed());
+    }
+
+    @Test
+    public void deveLiberarNomeNaSaidaNormal() {
+        WebSocket first = mock(WebSocket.class);
+        when(first.getResourceDescriptor()).thenReturn("/jogador");
+        subject.onOpen(first, mock(ClientHandshake.class));
+        ArgumentCaptor<PlayerSession> attached = ArgumentCaptor.forClass(PlayerSession.class);
+        verify(first).setAttachment(attached.capture());
+        when(first.getAttachment()).thenReturn(attached.getValue());
+        subject.onClose(first, 1001, "Solicitação do jogador", true);
+
+        WebSocket second = mock(WebSocket.class);
+        when(second.getResourceDescriptor()).thenReturn("/jogador");
+        subject.onOpen(second, mock(ClientHandshake.class));
+
+        assertSame(second, connections.get("jogador"));
+    }
+
+    @Test
+    public void deveRecusarNoHandshakeNomeInvalidoOuEmUso() {
+        WebSocket first = mock(WebSocket.class);
+        when(first.getResourceDescriptor()).thenReturn("/jogador");
+        subject.onOpen(first, mock(ClientHandshake.class));
+
+        ClientHandshake invalid = mock(ClientHandshake.class);
+        when(invalid.getResourceDescriptor()).thenReturn("/sala1/");
+        ClientHandshake taken = mock(ClientHandshake.class);
+        when(taken.getResourceDescriptor()).thenReturn("/sala1/jogador");
+
+        assertThrows(InvalidDataException.class, () -> subject.onWebsocketHandshakeReceivedAsServer(mock(WebSocket.class), null, invalid));
+        InvalidDataException refused = assertThrows(InvalidDataException.class,
+                () -> subject.onWebsocketHandshakeReceivedAsServer(mock(WebSocket.class), null, taken));
+        assertEquals(4002, refused.getCloseCode());
+        assertEquals(2, subject.getMetrics().getConnectionsRejected());
+    }
+
+    @Test
+    public void deveAceitarNoHandshakeRetomadaDeNomeEmUso() throws InvalidDataException {
+        WebSocket first = mock(WebSocket.class);
+        when(first.getResourceDescriptor()).thenReturn("/jogador");
+        subject.onOpen(first, mock(ClientHandshake.class));
+        ArgumentCaptor<PlayerSession> attached = ArgumentCaptor.forClass(PlayerSession.class);
+        verify(first).setAttachment(attached.capture());
+        when(first.getAttachment()).thenReturn(attached.getValue());
+
+        ClientHandshake handshake = mock(ClientHandshake.class);
+        when(handshake.getResourceDescriptor()).thenReturn("/jogador");
+        when(handshake.getFieldValue(Protocol.SESSION_HEADER)).thenReturn(attached.getValue().getToken());
+
+        assertNotNull(subject.onWebsocketHandshakeReceivedAsServer(mock(WebSocket.class), null, handshake));
+    }
+
+    @Test
+    public void deveValidarNomeDoJogador() {
+        assertTrue(Server.isValidName("jogador_1.a-b"));
+        assertFalse(Server.isValidName(""));
+        assertFalse(Server.isValidName("joão"));
+        assertFalse(Server.isValidName("um nome"));
+        assertFalse(Server.isValidName("x".repeat(Server.MAX_NAME_LENGTH + 1)));
+    }
+
+    @Test
+    public void deveReconhecerURIDeEspectador() {
+        assertTrue(Server.isSpectator("/sala1?espectador"));
+        assertTrue(Server.isSpectator("/sala1?x=2&espectador=1"));
+        assertFalse(Server.isSpectator("/sala1/jogador"));
+        assertFalse(Server.isSpectator("/sala1?espectador=0"));
+        assertEquals("sala1", Server.spectatedRoom("/sala1?espectador"));
+        assertEquals("sala1", Server.spectatedRoom("/sala1/?espectador"));
+        assertEquals(Server.DEFAULT_ROOM, Server.spectatedRoom("/?espectador"));
+    }
+
+    @Test
+    public void naoDeveOcuparNomeNemVagaComEspectador() {
+        WebSocket conn = mock(WebSocket.class);
+        when(conn.getResourceDescriptor()).thenReturn("/sala1?espectador");
+
+        subject.onOpen(conn, mock(ClientHandshake.class));
+
+        assertTrue(connections.isEmpty());
+        verify(conn).setAttachment(any(Spectator.class));
+        assertEquals(1, subject.getMetrics().getActiveSpectators());
+    }
+
+    @Test
+    public void deveDerrubarConexaoQueExcedeLimiteDeMensagens() {
+        WebSocket conn = mock(WebSocket.class);
+        when(conn.getResourceDescriptor()).thenReturn("/jogador");
+        subject.setMessageRateLimit(1, 1);
+        subject.onOpen(conn, mock(ClientHandshake.class));
+        ArgumentCaptor<PlayerSession> attached = ArgumentCaptor.forClass(PlayerSession.class);
+        verify(conn).setAttachment(attached.capture());
+        when(conn.getAttachment()).thenReturn(attached.getValue());
+
+        for (int i = 0; i <= Server.FLOOD_DISCONNECT_REJECTIONS; i++) {
+            subject.onMessage(conn, "palavra");
+        }
+
+        verify(conn, atLeastOnce()).close(eq(Server.CLOSE_FLOODING), anyString());
+        assertEquals(1, subject.getMetrics().getMessagesIn());
+        assertEquals(Server.FLOOD_DISCONNECT_REJECTIONS, subject.getMetrics().getMessagesThrottled());
+    }
+
+    @Test
+    public void naoDeveAvisarExcessoQuandoDescartaPorFilaDeSaidaAcumulada() throws Exception {
+        WebSocketImpl conn = mock(WebSocketImpl.class);
+        BlockingQueue<ByteBuffer> outQueue = new LinkedBlockingQueue<>();
+        Field field = WebSocketImpl.class.getField("outQueue");
+        field.setAccessible(true);
+        field.set(conn, outQueue);
+        when(conn.getResourceDescriptor()).thenReturn("/jogador");
+        subject.setMessageRateLimit(1, 1);
+        subject.onOpen(conn, mock(ClientHandshake.class));
+        ArgumentCaptor<PlayerSession> attached = ArgumentCaptor.forClass(PlayerSession.class);
+        verify(conn).setAttachment(attached.capture());
+        when(conn.getAttachment()).thenReturn(attached.getValue());
+
+        subject.onMessage(conn, "palavra");
+        subject.onMessage(conn, "palavra");
+        for (int i = 0; i < Broadcaster.DEFAULT_SLOW_QUEUE_DEPTH; i++) {
+            outQueue.add(ByteBuffer.allocate(1));
+        }
+        when(conn.hasBufferedData()).thenReturn(true);
+        for (int i = 0; i < Server.FLOOD_DISCONNECT_REJECTIONS; i++) {
+            subject.onMessage(conn, "palavra");
+        }
+
+        verify(conn, times(1)).send(contains("rápido demais"));
+        verify(conn, atLeastOnce()).close(eq(Server.CLOSE_FLOODING), anyString());
+    }
+
+    @Test
+    public void deveEntrarNaDonaAtualAoRetomarAntesDoFechamentoDaSalaMovida() throws Exception {
+        Map<String, WebSocket> shared = new ConcurrentHashMap<>();
+        GameScheduler scheduler = new GameScheduler(1);
+        ShardDirectory directory = new ShardDirectory(2, 9000);
+        Server[] servers = new Server[2];
+        for (int i = 0; i < 2; i++) {
+            servers[i] = new Server(new InetSocketAddress(9000 + i), 1, shared, MappedWordBank.fromDefaultResource(), scheduler,
+                    MatchHistory.DISABLED, new ServerMetrics());
+            servers[i].setShard(directory, i);
+        }
+        int source = directory.shardOf("sala1");
+        int target = 1 - source;
+
+        WebSocket first = mock(WebSocket.class);
+        when(first.getResourceDescriptor()).thenReturn("/sala1/jogador");
+        when(first.isOpen()).thenReturn(true);
+        servers[source].onOpen(first, mock(ClientHandshake.class));
+        ArgumentCaptor<PlayerSession> attached = ArgumentCaptor.forClass(PlayerSession.class);
+        verify(first).setAttachment(attached.capture());
+        PlayerSession session = attached.getValue();
+        when(first.getAttachment()).thenReturn(session);
+        awaitLane(scheduler, "sala1");
+        Room moved = session.getRoom();
+
+        assertTrue(directory.move("sala1", target).get(5, TimeUnit.SECONDS));
+        verify(first).close(Server.CLOSE_REDIRECT, String.valueOf(directory.port(target)));
+
+        // O cliente retoma na nova instância antes de o onClose da conexão antiga chegar
+        WebSocket second = mock(WebSocket.class);
+        when(second.getResourceDescriptor()).thenReturn("/sala1/jogador");
+        when(second.isOpen()).thenReturn(true);
+        ClientHandshake handshake = mock(ClientHandshake.class);
+        when(handshake.getFieldValue(Protocol.SESSION_HEADER)).thenReturn(session.getToken());
+        servers[target].onOpen(second, handshake);
+        awaitLane(scheduler, "sala1");
+        awaitLane(scheduler, "sala1");
+        servers[source].onClose(first, Server.CLOSE_REDIRECT, String.valueOf(directory.port(target)), false);
+        awaitLane(scheduler, "sala1");
+
+        assertSame(second, shared.get("jogador"));
+        assertNotSame(moved, session.getRoom());
+        assertEquals(0, moved.getStandings().size());
+        assertTrue(session.getRoom().getStandings().top(10).contains(session));
+        scheduler.shutdown();
+    }
+
+    private static void awaitLane(GameScheduler scheduler, String key) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.execute(key, done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+}
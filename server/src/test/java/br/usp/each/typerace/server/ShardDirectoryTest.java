@@ -0,0 +1,76 @@
+package br.usp.each.typerace.server;
+
+import org.java_websocket.WebSocket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardDirectoryTest {
+
+    private ShardDirectory subject;
+
+    @BeforeEach
+    void setup() {
+        subject = new ShardDirectory(2, 9000);
+        Map<String, WebSocket> connections = new HashMap<>();
+        new Server(9000, connections).setShard(subject, 0);
+        new Server(9001, connections).setShard(subject, 1);
+    }
+
+    @Test
+    void deveDistribuirSalasPeloHashDoID() {
+        int shard = subject.shardOf("sala1");
+
+        assertTrue(shard == 0 || shard == 1);
+        assertEquals(shard, subject.shardOf("sala1"));
+        assertEquals(9001, subject.port(1));
+    }
+
+    @Test
+    void deveCriarPartidasAutomaticasNaInstanciaDosJogadores() {
+        String first = subject.nextMatchRoom(1);
+        String second = subject.nextMatchRoom(0);
+
+        assertNotEquals(first, second);
+        assertEquals(1, subject.shardOf(first));
+        assertEquals(0, subject.shardOf(second));
+    }
+
+    @Test
+    void deveEsquecerPartidaAutomaticaRetiradaPelaDona() {
+        String room = subject.nextMatchRoom(1);
+
+        subject.unassign(room, 1);
+
+        assertEquals(Math.floorMod(room.hashCode(), 2), subject.shardOf(room));
+    }
+
+    @Test
+    void deveManterSalaMovidaAoSerRetiradaPelaAntigaDona() {
+        subject.assign("sala1", 1);
+
+        subject.unassign("sala1", 0);
+
+        assertEquals(1, subject.shardOf("sala1"));
+    }
+
+    @Test
+    void deveMoverSalaSemJogadores() throws ExecutionException, InterruptedException {
+        int target = 1 - subject.shardOf("sala1");
+
+        assertTrue(subject.move("sala1", target).get());
+        assertEquals(target, subject.shardOf("sala1"));
+        assertThrows(IllegalArgumentException.class, () -> subject.move("sala1", 2));
+    }
+
+    @Test
+    void deveIndicarUltimaInstanciaAParar() {
+        assertFalse(subject.release());
+        assertTrue(subject.release());
+    }
+}
@@ -0,0 +1,77 @@
+package br.usp.each.typerace.server;
+
+import org.java_websocket.WebSocket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SpectatorFeedTest {
+
+    private SpectatorFeed subject;
+
+    private Map<String, PlayerSession> players;
+
+    private PlayerSession ana;
+
+    private PlayerSession bia;
+
+    @BeforeEach
+    void setup() {
+        subject = new SpectatorFeed();
+        players = new LinkedHashMap<>();
+        ana = new PlayerSession("ana", mock(WebSocket.class), false);
+        bia = new PlayerSession("bia", mock(WebSocket.class), false);
+        players.put("ana", ana);
+        players.put("bia", bia);
+    }
+
+    @Test
+    void deveEnviarEstadoCompletoAoEspectadorQueEntra() {
+        subject.delta(players, true);
+
+        MessageBatch snapshot = subject.add(new Spectator(mock(WebSocket.class), false), players, true);
+
+        assertEquals("Corrida, estado completo (partida em andamento):\nana: palavra 1, 0 pontos\nbia: palavra 1, 0 pontos",
+                snapshot.text());
+        assertFalse(subject.isEmpty());
+    }
+
+    @Test
+    void deveEnviarApenasAsDiferencasAgrupadas() {
+        subject.add(new Spectator(mock(WebSocket.class), false), players, true);
+        subject.delta(players, true);
+
+        ana.position = 3;
+        ana.points = 2;
+        ana.position = 4;
+        ana.points = 3;
+
+        assertEquals("Corrida, atualização (partida em andamento):\nana: palavra 5, 3 pontos", subject.delta(players, true).text());
+        assertNull(subject.delta(players, true));
+    }
+
+    @Test
+    void deveInformarJogadorQueSaiu() {
+        subject.add(new Spectator(mock(WebSocket.class), false), players, false);
+        subject.delta(players, false);
+
+        players.remove("bia");
+
+        assertEquals("Corrida, atualização (aguardando partida):\nbia saiu da sala.", subject.delta(players, false).text());
+    }
+
+    @Test
+    void deveFicarVazioQuandoUltimoEspectadorSai() {
+        Spectator spectator = new Spectator(mock(WebSocket.class), true);
+        subject.add(spectator, players, false);
+
+        subject.remove(spectator);
+
+        assertTrue(subject.isEmpty());
+    }
+}
@@ -0,0 +1,87 @@
+package br.usp.each.typerace.server;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StandingsTest {
+
+    private Standings subject;
+
+    private PlayerSession ana;
+
+    private PlayerSession bia;
+
+    private PlayerSession caio;
+
+    @BeforeEach
+    void setUp() {
+        subject = new Standings(20);
+        ana = new PlayerSession("ana", null, false);
+        bia = new PlayerSession("bia", null, false);
+        caio = new PlayerSession("caio", null, false);
+        subject.add(ana);
+        subject.add(bia);
+        subject.add(caio);
+    }
+
+    private void score(PlayerSession session, int points) {
+        session.points = points;
+        subject.update(session);
+    }
+
+    @Test
+    void deveCalcularPosicaoAposAcertos() {
+        score(bia, 3);
+        score(caio, 1);
+
+        assertEquals(1, subject.rank(bia));
+        assertEquals(2, subject.rank(caio));
+        assertEquals(3, subject.rank(ana));
+    }
+
+    @Test
+    void empatadosDevemDividirAPosicao() {
+        score(ana, 2);
+        score(bia, 2);
+
+        assertEquals(1, subject.rank(ana));
+        assertEquals(1, subject.rank(bia));
+        assertEquals(3, subject.rank(caio));
+    }
+
+    @Test
+    void topDeveOrdenarPorPontosEDesempatarPorChegada() {
+        score(caio, 2);
+        score(ana, 2);
+        score(bia, 5);
+
+        assertEquals(Arrays.asList(bia, caio, ana), subject.top(3));
+        assertEquals(Arrays.asList(bia, caio), subject.top(2));
+    }
+
+    @Test
+    void deveRetirarJogador() {
+        score(ana, 4);
+        subject.remove(ana);
+
+        assertEquals(2, subject.size());
+        assertEquals(0, subject.rank(ana));
+        assertEquals(1, subject.rank(bia));
+        assertFalse(subject.top(3).contains(ana));
+    }
+
+    @Test
+    void resetDeveVoltarAosContadoresDasSessoes() {
+        score(ana, 7);
+        ana.resetStatistics();
+        subject.reset();
+
+        assertEquals(3, subject.size());
+        assertEquals(1, subject.rank(ana));
+        assertEquals(1, subject.rank(caio));
+    }
+}
@@ -0,0 +1,43 @@
+package br.usp.each.typerace.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    @Test
+    void deveAceitarRajadaERecusarExcesso() {
+        TokenBucket subject = new TokenBucket(10, 5);
+        long now = System.nanoTime();
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(subject.tryAcquire(now));
+        }
+        assertFalse(subject.tryAcquire(now));
+        assertFalse(subject.tryAcquire(now));
+        assertEquals(2, subject.getRejectedInARow());
+    }
+
+    @Test
+    void deveReporFichasComOTempo() {
+        TokenBucket subject = new TokenBucket(10, 1);
+        long now = System.nanoTime();
+
+        assertTrue(subject.tryAcquire(now));
+        assertFalse(subject.tryAcquire(now + TimeUnit.MILLISECONDS.toNanos(50)));
+        assertTrue(subject.tryAcquire(now + TimeUnit.MILLISECONDS.toNanos(100)));
+        assertEquals(0, subject.getRejectedInARow());
+    }
+
+    @Test
+    void naoDeveLimitarComTaxaZero() {
+        TokenBucket subject = new TokenBucket(0, 0);
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(subject.tryAcquire());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package br.usp.each.typerace.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TypingStatsTest {
+
+    @Test
+    void deveCalcularPalavrasPorMinutoEPrecisao() {
+        TypingStats subject = new TypingStats();
+
+        // 3 palavras de 5 letras em 1 s cada: 15 caracteres (3 palavras padrão) em 3 s = 60 por minuto
+        subject.record(TimeUnit.SECONDS.toNanos(1), true, 5);
+        subject.record(TimeUnit.SECONDS.toNanos(1), true, 5);
+        subject.record(TimeUnit.SECONDS.toNanos(1), true, 5);
+        subject.record(TimeUnit.SECONDS.toNanos(1), false, 5);
+
+        assertEquals(45.0, subject.wordsPerMinute(), 1e-9);
+        assertEquals(75.0, subject.accuracy(), 1e-9);
+        assertEquals(4, subject.getAnswers());
+    }
+
+    @Test
+    void deveCalcularPercentisDasUltimasRespostas() {
+        TypingStats subject = new TypingStats();
+        for (int i = 1; i <= 100; i++) {
+            subject.record(TimeUnit.MILLISECONDS.toNanos(i), true, 4);
+        }
+
+        assertEquals(50, subject.percentileMillis(50));
+        assertEquals(90, subject.percentileMillis(90));
+        assertEquals(100, subject.percentileMillis(100));
+
+        // O buffer circular guarda só as últimas respostas
+        for (int i = 0; i < TypingStats.CAPACITY; i++) {
+            subject.record(TimeUnit.MILLISECONDS.toNanos(1000), true, 4);
+        }
+        assertEquals(1000, subject.percentileMillis(50));
+    }
+
+    @Test
+    void deveZerarEstatisticas() {
+        TypingStats subject = new TypingStats();
+        subject.record(TimeUnit.SECONDS.toNanos(2), true, 10);
+
+        subject.reset();
+
+        assertEquals(0, subject.getAnswers());
+        assertEquals(0, subject.wordsPerMinute());
+        assertEquals(0, subject.percentileMillis(50));
+    }
+}
@@ -0,0 +1,49 @@
+package br.usp.each.typerace.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WordSequenceTest {
+
+    @Test
+    void cadaVoltaDeveSerUmaPermutacaoDoBanco() {
+        WordSequence subject = new WordSequence(42, 366);
+        BitSet firstLap = new BitSet();
+        BitSet secondLap = new BitSet();
+
+        for (int i = 0; i < 366; i++) {
+            firstLap.set(subject.index(i));
+            secondLap.set(subject.index(366 + i));
+        }
+
+        assertEquals(366, firstLap.cardinality());
+        assertEquals(366, secondLap.cardinality());
+        assertEquals(366, firstLap.length());
+    }
+
+    @Test
+    void mesmaSementeDeveReproduzirAPartida() {
+        WordSequence first = new WordSequence(1234L, 1000);
+        WordSequence replay = new WordSequence(1234L, 1000);
+
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(first.index(i), replay.index(i));
+        }
+    }
+
+    @Test
+    void sementesDiferentesDevemGerarSequenciasDiferentes() {
+        WordSequence first = new WordSequence(1L, 1000);
+        WordSequence second = new WordSequence(2L, 1000);
+
+        int equal = 0;
+        for (int i = 0; i < 100; i++) {
+            if (first.index(i) == second.index(i)) equal++;
+        }
+
+        assertTrue(equal < 10);
+    }
+}